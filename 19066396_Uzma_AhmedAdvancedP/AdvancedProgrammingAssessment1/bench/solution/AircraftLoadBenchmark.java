@@ -0,0 +1,136 @@
+package solution;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import baseclasses.Aircraft;
+import baseclasses.Aircraft.Manufacturer;
+import baseclasses.DataLoadingException;
+
+/**
+ * Compares the rows per second of the streaming AircraftDAO loader against the BufferedReader/split
+ * loader it replaced, on a generated aircraft CSV file.
+ *
+ * Usage: AircraftLoadBenchmark [rows] [iterations]
+ */
+public class AircraftLoadBenchmark {
+
+	//throws away whatever is written to it, OutputStream.nullOutputStream() is Java 11
+	private static final OutputStream DISCARD = new OutputStream() {
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	};
+
+	public static void main(String[] args) throws IOException, DataLoadingException {
+		int rows = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+		int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		Path csv = Files.createTempFile("aircraft", ".csv");
+		try {
+			writeAircraft(csv, rows);
+
+			//warm both loaders up before timing anything
+			for(int i = 0; i < 2; i++) {
+				legacyLoad(csv);
+				new AircraftDAO().loadAircraftData(csv);
+			}
+
+			long legacyBest = Long.MAX_VALUE;
+			long streamingBest = Long.MAX_VALUE;
+			for(int i = 0; i < iterations; i++) {
+				long start = System.nanoTime();
+				legacyLoad(csv);
+				legacyBest = Math.min(legacyBest, System.nanoTime() - start);
+
+				start = System.nanoTime();
+				AircraftDAO dao = new AircraftDAO();
+				dao.loadAircraftData(csv);
+				streamingBest = Math.min(streamingBest, System.nanoTime() - start);
+				if(dao.getNumberOfAircraft() != rows) {
+					throw new IllegalStateException("Loaded " + dao.getNumberOfAircraft() + " aircraft, expected " + rows);
+				}
+			}
+
+			System.out.printf("rows: %d, best of %d%n", rows, iterations);
+			System.out.printf("split loader:     %,12.0f rows/sec%n", rows / (legacyBest / 1e9));
+			System.out.printf("streaming loader: %,12.0f rows/sec%n", rows / (streamingBest / 1e9));
+		}
+		finally {
+			Files.deleteIfExists(csv);
+		}
+	}
+
+	/**
+	 * Writes a CSV file in the same layout as data/schedule_aircraft.csv
+	 */
+	static void writeAircraft(Path p, int rows) throws IOException {
+		String[][] types = {
+				{"A319", "Airbus", "A319-100", "144", "3"},
+				{"A320", "Airbus", "A320-200", "180", "4"},
+				{"A321", "Airbus", "A321-200", "220", "5"},
+				{"B738", "Boeing", "737-800", "189", "4"},
+				{"B772", "Boeing", "777-200", "314", "8"}};
+		String[] airports = {"MAN", "LHR", "LGW", "EDI", "GLA", "BHX", "NCL", "BRS"};
+
+		try (BufferedWriter out = Files.newBufferedWriter(p)) {
+			out.write("Tailcode,Model,Type,Manufacturer,StartingPosition,Seats,CabinCrewRequired\n");
+			for(int i = 0; i < rows; i++) {
+				String[] type = types[i % types.length];
+				out.write("G-" + Integer.toString(i, 36).toUpperCase() + "," + type[2] + "," + type[0] + "," + type[1] + ","
+						+ airports[i % airports.length] + "," + type[3] + "," + type[4] + "\n");
+			}
+		}
+	}
+
+	/**
+	 * The loader as it was before the streaming reader, including building the per aircraft log line.
+	 * The log line goes to a discarding stream so the terminal doesn't decide the result
+	 */
+	static List<Aircraft> legacyLoad(Path p) throws IOException {
+		List<Aircraft> aircraftList = new ArrayList<>();
+		PrintStream console = System.out;
+		System.setOut(new PrintStream(DISCARD));
+		try (BufferedReader reader = Files.newBufferedReader(p)) {
+			String line = "";
+			reader.readLine();
+			while( (line = reader.readLine()) != null) {
+				String[] fields = line.split(",");
+				String tailcode = fields[0];
+				String model=fields[1];
+				String type = fields[2];
+				Manufacturer manufacturer=Manufacturer.valueOf(fields[3].toUpperCase());
+				String startingPosition=fields[4];
+				int seats = Integer.parseInt(fields[5]);
+				int cabinCrewRequired=Integer.parseInt(fields[6]);
+
+				Aircraft a = new Aircraft();
+				a.setTailCode(tailcode);
+				a.setTypeCode(type);
+				a.setSeats(seats);
+				a.setCabinCrewRequired(cabinCrewRequired);
+				a.setModel(model);
+				a.setManufacturer(manufacturer);
+				a.setStartingPosition(startingPosition);
+				aircraftList.add(a);
+
+				System.out.println("Aircraft: " + tailcode + " is a " + type + " with " + seats + " seats."+" With a model ="+model+" and manufacturer: "+manufacturer+"starting position " +startingPosition);
+			}
+		}
+		finally {
+			System.setOut(console);
+		}
+		return aircraftList;
+	}
+}
@@ -0,0 +1,66 @@
+package solution;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Writes fixture data for the benchmarks with DatasetGenerator, scaled by the number of aircraft.
+ *
+ * For n aircraft there are 6n pilots, 15n cabin crew and 10n weekly routes, with passenger forecasts for
+ * every flight over PASSENGER_DAYS days from START. The same size and seed always give the same files.
+ */
+final class BenchmarkData {
+
+	static final String[] AIRPORTS = DatasetGenerator.airportCodes();
+	static final String[] TYPES = DatasetGenerator.typeCodes();
+	static final String[] DAYS = DatasetGenerator.DAYS;
+	static final LocalDate START = LocalDate.of(2021, 2, 1);//a Monday
+	static final int PASSENGER_DAYS = 28;
+
+	static final String AIRCRAFT = DatasetGenerator.AIRCRAFT_FILE;
+	static final String CREW = DatasetGenerator.CREW_FILE;
+	static final String ROUTES = DatasetGenerator.ROUTES_FILE;
+	static final String PASSENGERS = DatasetGenerator.PASSENGERS_FILE;
+
+	private BenchmarkData() {
+	}
+
+	/**
+	 * Writes a complete data set into a directory
+	 * @param dir the directory to write to
+	 * @param aircraft the number of aircraft, which everything else is scaled from
+	 * @param seed the seed for the data
+	 */
+	static void writeDataset(Path dir, int aircraft, long seed) throws IOException, SQLException {
+		DatasetGenerator generator = new DatasetGenerator(seed);
+		generator.setAircraft(aircraft);
+		generator.setPilots(6 * aircraft);
+		generator.setCabinCrew(15 * aircraft);
+		generator.setRoutes(10 * aircraft);
+		//every route flies once a week, so a week of forecasts is one row per route
+		generator.setPassengerRows(10L * aircraft * PASSENGER_DAYS / 7);
+		generator.setStartDate(START);
+		try {
+			generator.writeAll(dir);
+		}
+		catch(XMLStreamException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Deletes a data set written by writeDataset(), and the directory it is in
+	 * @param dir the directory
+	 */
+	static void delete(Path dir) throws IOException {
+		for(String file : new String[] {AIRCRAFT, CREW, ROUTES, PASSENGERS}) {
+			Files.deleteIfExists(dir.resolve(file));
+		}
+		Files.deleteIfExists(dir);
+	}
+}
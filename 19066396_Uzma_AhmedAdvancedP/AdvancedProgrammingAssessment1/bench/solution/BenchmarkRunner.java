@@ -0,0 +1,37 @@
+package solution;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks with the GC profiler, so the allocation rate is reported alongside
+ * throughput and latency.
+ *
+ * The bench folder is the bench source set in build.gradle, compiled with jmh-core and the
+ * jmh-generator-annprocess annotation processor. gradle jmh runs this class, passing -PjmhArgs on as its arguments,
+ * and gradle benchJar packages it with everything it needs as build/libs/benchmarks.jar.
+ *
+ * Usage: BenchmarkRunner [regex of benchmarks to run] [aircraft sizes, comma separated] [thread counts, comma separated]
+ * e.g. BenchmarkRunner LookupBenchmarks 1000,10000
+ * or BenchmarkRunner ReadScalingBenchmarks 1000 1,2,4,8 to run the benchmarks once for each number of threads
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws RunnerException {
+		String[] threads = args.length > 2 ? args[2].split(",") : new String[] {"1"};
+		for(String t : threads) {
+			ChainedOptionsBuilder options = new OptionsBuilder()
+					.include(args.length > 0 ? args[0] : "solution\\..*Benchmarks?")
+					.addProfiler(GCProfiler.class)
+					.threads(Integer.parseInt(t))
+					.shouldFailOnError(true);
+			if(args.length > 1) {
+				options.param("aircraft", args[1].split(","));
+			}
+			new Runner(options.build()).run();
+		}
+	}
+}
@@ -0,0 +1,208 @@
+package solution;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLStreamException;
+
+import baseclasses.Aircraft;
+import baseclasses.Crew;
+import baseclasses.DataLoadingException;
+import baseclasses.Route;
+
+/**
+ * Measures what the airport and type codes cost on a large data set: how much heap the loaded crew take, how many
+ * separate code String instances the loaded aircraft, crew and routes hold against how many different codes there
+ * are, and how long the lookups keyed on codes take.
+ *
+ * By default it loads 60,000 pilots and 150,000 cabin crew, the crew for 10,000 aircraft in BenchmarkData's mix.
+ * The heap figures come from the used heap after a full collection, so run it with a fixed heap, e.g. -Xms2g -Xmx2g,
+ * and nothing else going on. Only the aircraft, crew and route files are written, so no SQLite driver is needed.
+ *
+ * Usage: CodeFootprint [aircraft] [pilots] [cabin crew] [weekly routes] [lookup rounds]
+ */
+public class CodeFootprint {
+
+	//a compact String on a 64 bit JVM with compressed oops: the object, and the header and length of its byte array
+	private static final int STRING_BYTES = 24;
+	private static final int ARRAY_HEADER_BYTES = 16;
+
+	private static final int WARMUP_PASSES = 4;
+
+	public static void main(String[] args) throws IOException, XMLStreamException, DataLoadingException {
+		int aircraft = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		int pilots = args.length > 1 ? Integer.parseInt(args[1]) : 6 * aircraft;
+		int cabinCrew = args.length > 2 ? Integer.parseInt(args[2]) : 15 * aircraft;
+		int routes = args.length > 3 ? Integer.parseInt(args[3]) : 10 * aircraft;
+		int rounds = args.length > 4 ? Integer.parseInt(args[4]) : 500;
+
+		Path dir = Files.createTempDirectory("code-footprint");
+		AircraftDAO aircraftDAO = new AircraftDAO();
+		CrewDAO crewDAO = new CrewDAO();
+		RouteDAO routeDAO = new RouteDAO();
+		long crewHeap;
+		try {
+			DatasetGenerator generator = new DatasetGenerator(1L);
+			generator.setAircraft(aircraft);
+			generator.setPilots(pilots);
+			generator.setCabinCrew(cabinCrew);
+			generator.setRoutes(routes);
+			generator.writeAircraft(dir.resolve(BenchmarkData.AIRCRAFT));
+			generator.writeCrew(dir.resolve(BenchmarkData.CREW));
+			generator.writeRoutes(dir.resolve(BenchmarkData.ROUTES));
+
+			long before = usedHeap();
+			crewDAO.loadCrewData(dir.resolve(BenchmarkData.CREW));
+			crewHeap = usedHeap() - before;
+			aircraftDAO.loadAircraftData(dir.resolve(BenchmarkData.AIRCRAFT));
+			routeDAO.loadRouteData(dir.resolve(BenchmarkData.ROUTES));
+		}
+		finally {
+			BenchmarkData.delete(dir);
+		}
+
+		System.out.printf("Loaded %,d aircraft, %,d pilots, %,d cabin crew and %,d routes%n", aircraftDAO.getNumberOfAircraft(),
+				crewDAO.getNumberOfPilots(), crewDAO.getNumberOfCabinCrew(), routeDAO.getNumberOfRoutes());
+		System.out.printf("The crew DAO holds %,.1f MB of heap%n", crewHeap / 1e6);
+
+		Codes codes = new Codes();
+		for(Crew c : crewDAO.getAllCrew()) {
+			codes.add(c.getHomeBase());
+			for(String type : c.getTypeRatings()) {
+				codes.add(type);
+			}
+		}
+		codes.print("crew");
+		codes = new Codes();
+		for(Aircraft a : aircraftDAO.getAllAircraft()) {
+			codes.add(a.getTypeCode());
+			codes.add(a.getStartingPosition());
+		}
+		for(Route r : routeDAO.getAllRoutes()) {
+			codes.add(r.getDepartureAirportCode());
+			codes.add(r.getArrivalAirportCode());
+		}
+		codes.print("aircraft and routes");
+
+		measureLookups(aircraftDAO, crewDAO, routeDAO, rounds);
+	}
+
+	/**
+	 * Times the lookups made with codes. The codes asked for are copies, as they would be when they come from
+	 * a request or another file, so a lookup can't get away with comparing references
+	 */
+	private static void measureLookups(AircraftDAO aircraftDAO, CrewDAO crewDAO, RouteDAO routeDAO, int rounds) {
+		String[] types = copies(BenchmarkData.TYPES);
+		String[] airports = copies(BenchmarkData.AIRPORTS);
+		List<Route> allRoutes = routeDAO.getAllRoutes();
+		AircraftSelector selector = new AircraftSelector(aircraftDAO);
+
+		//every pass but the last warms up
+		for(int pass = 0; pass < WARMUP_PASSES + 1; pass++) {
+			boolean report = pass == WARMUP_PASSES;
+			int passRounds = Math.max(1, rounds / (WARMUP_PASSES + 1));
+
+			long found = 0;
+			long start = System.nanoTime();
+			int calls = 0;
+			for(int round = 0; round < passRounds; round++) {
+				for(String type : types) {
+					for(String airport : airports) {
+						found += crewDAO.findPilotsByHomeBaseAndTypeRating(type, airport).size();
+						found += crewDAO.findCabinCrewByHomeBaseAndTypeRating(type, airport).size();
+						calls += 2;
+					}
+				}
+			}
+			print(report, "crew by type rating and home base", start, calls, found);
+
+			found = 0;
+			start = System.nanoTime();
+			calls = 0;
+			for(int round = 0; round < passRounds * 10; round++) {
+				for(String type : types) {
+					found += aircraftDAO.findAircraftByType(type).size();
+					calls++;
+				}
+				for(String airport : airports) {
+					found += aircraftDAO.findAircraftByStartingPosition(airport).size();
+					for(String day : BenchmarkData.DAYS) {
+						found += routeDAO.findRoutesByDepartureAirportAndDay(airport, day).size();
+						calls++;
+					}
+					calls++;
+				}
+			}
+			print(report, "aircraft and routes by code", start, calls, found);
+
+			//nothing is available, so every call looks at where every aircraft is
+			found = 0;
+			start = System.nanoTime();
+			calls = passRounds;
+			for(int i = 0; i < calls; i++) {
+				Route r = allRoutes.get((int) ((i * 2654435761L) % allRoutes.size()));
+				found += selector.choose(0, r.getDepartureAirportCode(), 0, a -> false) == null ? 0 : 1;
+			}
+			print(report, "choosing an aircraft from the whole fleet", start, calls, found);
+		}
+	}
+
+	private static void print(boolean report, String what, long start, int calls, long found) {
+		if(report) {
+			System.out.printf("%-45s %,12.0f ns a call (%,d calls, %,d found)%n", what, (System.nanoTime() - start) / (double) calls,
+					calls, found);
+		}
+	}
+
+	private static String[] copies(String[] codes) {
+		String[] copies = new String[codes.length];
+		for(int i = 0; i < codes.length; i++) {
+			copies[i] = new String(codes[i].toCharArray());
+		}
+		return copies;
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for(int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/**
+	 * Counts the code String instances held, and how many different codes they spell
+	 */
+	private static final class Codes {
+		private final Map<String, Boolean> instances = new IdentityHashMap<>();
+		private final Set<String> values = new HashSet<>();
+		private long references;
+		private long bytes;
+
+		void add(String code) {
+			if(code == null) {
+				return;
+			}
+			references++;
+			values.add(code);
+			if(instances.put(code, Boolean.TRUE) == null) {
+				bytes += STRING_BYTES + align(ARRAY_HEADER_BYTES + code.length());
+			}
+		}
+
+		void print(String holder) {
+			System.out.printf("The %s refer to %,d codes: %,d String instances of %,d different codes, about %,.1f MB%n",
+					holder, references, instances.size(), values.size(), bytes / 1e6);
+		}
+
+		private static long align(long size) {
+			return (size + 7) & ~7L;
+		}
+	}
+}
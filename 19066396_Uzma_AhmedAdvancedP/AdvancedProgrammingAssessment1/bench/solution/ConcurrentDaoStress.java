@@ -0,0 +1,245 @@
+package solution;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import baseclasses.Aircraft;
+import baseclasses.CabinCrew;
+import baseclasses.DataLoadingException;
+import baseclasses.Pilot;
+import baseclasses.Route;
+
+/**
+ * A stress test for the DAOs: reader threads hammer the finders while writer threads keep loading the data files
+ * into the same DAOs, and now and then reset them. A second PassengerNumbersDAO loads on demand, with a cache of
+ * only a few dates, and the writers keep switching it to a new database and resetting it while readers look up
+ * forecasts through the cache they read before it was closed.
+ *
+ * Every load adds a whole file or nothing, so whatever a reader sees must be a whole number of copies of each file,
+ * and every answer must be consistent with itself: every aircraft found by type is of that type, seat searches are
+ * in seat order, and so on. Any broken answer or exception, such as a ConcurrentModificationException, is reported
+ * and the process exits with status 1.
+ *
+ * Usage: ConcurrentDaoStress [readers] [writers] [seconds] [aircraft]
+ */
+public class ConcurrentDaoStress {
+
+	private final AircraftDAO aircraftDAO = new AircraftDAO();
+	private final CrewDAO crewDAO = new CrewDAO();
+	private final RouteDAO routeDAO = new RouteDAO();
+	private final PassengerNumbersDAO passengerNumbersDAO = new PassengerNumbersDAO();
+	private final PassengerNumbersDAO onDemandDAO = new PassengerNumbersDAO();
+
+	//dates the on demand cache holds, few enough that most lookups fetch
+	private static final int ON_DEMAND_DATES = 4;
+
+	//what one copy of each file holds
+	private int aircraftPerFile;
+	private int crewPerFile;
+	private int routesPerFile;
+	private int passengerEntries;
+	//the whole database, to check what the on demand DAO answers against
+	private PassengerNumbersDAO expectedPassengers;
+
+	private final Path dir;
+	private volatile boolean stopped;
+	private final LongAdder reads = new LongAdder();
+	private final LongAdder loads = new LongAdder();
+	private final ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+
+	ConcurrentDaoStress(Path dir) {
+		this.dir = dir;
+	}
+
+	public static void main(String[] args) throws IOException, SQLException, DataLoadingException, InterruptedException {
+		int readers = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		int writers = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+		int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+		int aircraft = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+
+		Path dir = Files.createTempDirectory("dao-stress");
+		List<String> failures;
+		try {
+			BenchmarkData.writeDataset(dir, aircraft, 1L);
+			ConcurrentDaoStress stress = new ConcurrentDaoStress(dir);
+			stress.measureFiles();
+			failures = stress.run(readers, writers, seconds);
+		}
+		finally {
+			BenchmarkData.delete(dir);
+		}
+
+		if(!failures.isEmpty()) {
+			System.out.println(failures.size() + " failures, the first were:");
+			for(String failure : failures.subList(0, Math.min(20, failures.size()))) {
+				System.out.println("  " + failure);
+			}
+			System.exit(1);
+		}
+		System.out.println("No failures");
+	}
+
+	/**
+	 * Loads one copy of each file into DAOs of its own to find out what a file holds
+	 */
+	void measureFiles() throws DataLoadingException {
+		AircraftDAO aircraft = new AircraftDAO();
+		CrewDAO crew = new CrewDAO();
+		RouteDAO routes = new RouteDAO();
+		PassengerNumbersDAO passengers = new PassengerNumbersDAO();
+		load(aircraft, crew, routes, passengers);
+		aircraftPerFile = aircraft.getNumberOfAircraft();
+		crewPerFile = crew.getNumberOfPilots() + crew.getNumberOfCabinCrew();
+		routesPerFile = routes.getNumberOfRoutes();
+		passengerEntries = passengers.getNumberOfEntries();
+		expectedPassengers = passengers;
+		onDemandDAO.loadPassengerNumbersOnDemand(dir.resolve(BenchmarkData.PASSENGERS), ON_DEMAND_DATES);
+	}
+
+	/**
+	 * Runs the readers and writers for a while
+	 * @return every failure seen
+	 */
+	List<String> run(int readers, int writers, int seconds) throws InterruptedException {
+		List<Thread> threads = new ArrayList<>();
+		for(int i = 0; i < writers; i++) {
+			int writer = i;
+			threads.add(new Thread(() -> write(writer), "writer-" + i));
+		}
+		for(int i = 0; i < readers; i++) {
+			int reader = i;
+			threads.add(new Thread(() -> read(reader), "reader-" + i));
+		}
+		for(Thread t : threads) {
+			t.start();
+		}
+		Thread.sleep(seconds * 1000L);
+		stopped = true;
+		for(Thread t : threads) {
+			t.join();
+		}
+
+		System.out.printf("%d readers made %,d reads (%,.0f a second) while %d writers made %,d loads%n",
+				readers, reads.sum(), reads.sum() / (double) seconds, writers, loads.sum());
+		return new ArrayList<>(failures);
+	}
+
+	private void write(int writer) {
+		Random random = new Random(writer);
+		while(!stopped) {
+			try {
+				//reset now and then, so the DAOs don't grow without end
+				if(random.nextInt(8) == 0) {
+					aircraftDAO.reset();
+					crewDAO.reset();
+					routeDAO.reset();
+					passengerNumbersDAO.reset();
+					onDemandDAO.reset();
+				}
+				load(aircraftDAO, crewDAO, routeDAO, passengerNumbersDAO);
+				//closes the cache readers may still be fetching through
+				onDemandDAO.loadPassengerNumbersOnDemand(dir.resolve(BenchmarkData.PASSENGERS), ON_DEMAND_DATES);
+				loads.increment();
+			}
+			catch(DataLoadingException | RuntimeException e) {
+				failures.add(Thread.currentThread().getName() + ": " + e);
+			}
+		}
+	}
+
+	private void load(AircraftDAO aircraft, CrewDAO crew, RouteDAO routes, PassengerNumbersDAO passengers) throws DataLoadingException {
+		aircraft.loadAircraftData(dir.resolve(BenchmarkData.AIRCRAFT));
+		crew.loadCrewData(dir.resolve(BenchmarkData.CREW));
+		routes.loadRouteData(dir.resolve(BenchmarkData.ROUTES));
+		passengers.loadPassengerNumbersData(dir.resolve(BenchmarkData.PASSENGERS));
+	}
+
+	private void read(int reader) {
+		Random random = new Random(reader);
+		while(!stopped) {
+			String type = BenchmarkData.TYPES[random.nextInt(BenchmarkData.TYPES.length)];
+			String airport = BenchmarkData.AIRPORTS[random.nextInt(BenchmarkData.AIRPORTS.length)];
+			try {
+				checkAircraft(type, airport, random.nextInt(400));
+				checkCrew(type, airport);
+				checkRoutes(airport, BenchmarkData.DAYS[random.nextInt(7)]);
+				checkPassengers(random);
+				checkOnDemand(random);
+				reads.add(5);
+			}
+			catch(RuntimeException e) {
+				failures.add(Thread.currentThread().getName() + ": " + e);
+			}
+		}
+	}
+
+	private void checkAircraft(String type, String airport, int seats) {
+		check(aircraftDAO.getAllAircraft().size() % aircraftPerFile == 0, "a part of an aircraft file was seen");
+		for(Aircraft a : aircraftDAO.findAircraftByType(type)) {
+			check(a.getTypeCode().equals(type), "findAircraftByType(" + type + ") found a " + a.getTypeCode());
+		}
+		for(Aircraft a : aircraftDAO.findAircraftByStartingPosition(airport)) {
+			check(a.getStartingPosition().equals(airport), "findAircraftByStartingPosition(" + airport + ") found one at " + a.getStartingPosition());
+		}
+		int last = seats;
+		for(Aircraft a : aircraftDAO.findAircraftBySeats(seats)) {
+			check(a.getSeats() >= last, "findAircraftBySeats(" + seats + ") is out of order or too small at " + a.getSeats());
+			last = a.getSeats();
+		}
+		String tailCode = DatasetGenerator.tailCode(0);
+		Aircraft a = aircraftDAO.findAircraftByTailCode(tailCode);
+		check(a == null || a.getTailCode().equals(tailCode), "findAircraftByTailCode(" + tailCode + ") found " + (a == null ? null : a.getTailCode()));
+	}
+
+	private void checkCrew(String type, String airport) {
+		check(crewDAO.getAllCrew().size() % crewPerFile == 0, "a part of a crew file was seen");
+		for(Pilot p : crewDAO.findPilotsByHomeBaseAndTypeRating(type, airport)) {
+			check(p.getHomeBase().equals(airport) && p.getTypeRatings().contains(type),
+					"findPilotsByHomeBaseAndTypeRating(" + type + ", " + airport + ") found " + p.getHomeBase() + " " + p.getTypeRatings());
+		}
+		for(CabinCrew c : crewDAO.findCabinCrewByTypeRating(type)) {
+			check(c.getTypeRatings().contains(type), "findCabinCrewByTypeRating(" + type + ") found " + c.getTypeRatings());
+		}
+	}
+
+	private void checkRoutes(String airport, String day) {
+		check(routeDAO.getAllRoutes().size() % routesPerFile == 0, "a part of a route file was seen");
+		for(Route r : routeDAO.findRoutesByDepartureAirportAndDay(airport, day)) {
+			check(r.getDepartureAirportCode().equals(airport) && r.getDayOfWeek().equalsIgnoreCase(day),
+					"findRoutesByDepartureAirportAndDay(" + airport + ", " + day + ") found " + r.getDepartureAirportCode() + " " + r.getDayOfWeek());
+		}
+	}
+
+	private void checkPassengers(Random random) {
+		//every copy of the database holds the same flights, so there is either none of it or all of it
+		int entries = passengerNumbersDAO.getNumberOfEntries();
+		check(entries == 0 || entries == passengerEntries, "a part of a passenger numbers database was seen: " + entries + " entries");
+		int passengers = passengerNumbersDAO.getPassengerNumbersFor(1 + random.nextInt(routesPerFile),
+				BenchmarkData.START.plusDays(random.nextInt(BenchmarkData.PASSENGER_DAYS)));
+		check(passengers >= -1, "a negative passenger number was found: " + passengers);
+	}
+
+	private void checkOnDemand(Random random) {
+		//a lookup racing a reset can miss, but it must not fail or give a wrong answer
+		int flightNumber = 1 + random.nextInt(routesPerFile);
+		LocalDate date = BenchmarkData.START.plusDays(random.nextInt(BenchmarkData.PASSENGER_DAYS));
+		int passengers = onDemandDAO.getPassengerNumbersFor(flightNumber, date);
+		int expected = expectedPassengers.getPassengerNumbersFor(flightNumber, date);
+		check(passengers == -1 || passengers == expected,
+				"getPassengerNumbersFor(" + flightNumber + ", " + date + ") on demand gave " + passengers + ", expected " + expected);
+	}
+
+	private static void check(boolean ok, String message) {
+		if(!ok) {
+			throw new IllegalStateException(message);
+		}
+	}
+}
@@ -0,0 +1,444 @@
+package solution;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Writes a synthetic airline data set in the same four formats as the files in data/, at any scale,
+ * for load testing the DAOs and scheduler offline.
+ *
+ * The files are consistent with each other: aircraft start at, and crew are based at, the airports the routes fly
+ * between, crew are rated for the types in the fleet in about the same mix, and there is a passenger forecast for
+ * every flight of every route from the start date until the requested number of rows is reached.
+ * Airports are a fixed list of European airports weighted by size, so the busy ones have most of the routes,
+ * aircraft and crew. Flight times come from the distance between the airports, and departures bunch around the
+ * morning and evening banks.
+ *
+ * Everything is generated from the seed, and each file from its own stream of it, so the same seed and sizes always
+ * give the same files, whichever of them are written.
+ *
+ * Usage: DatasetGenerator directory [aircraft] [crew] [weekly routes] [passenger rows] [seed]
+ * e.g. DatasetGenerator /tmp/big 5000 200000 100000 50000000 1
+ */
+public class DatasetGenerator {
+
+	static final String AIRCRAFT_FILE = "schedule_aircraft.csv";
+	static final String CREW_FILE = "schedule_crew.json";
+	static final String ROUTES_FILE = "schedule_routes.xml";
+	static final String PASSENGERS_FILE = "schedule_passengers.db";
+
+	static final String[] DAYS = {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"};
+
+	//code, name, latitude, longitude, relative size
+	private static final Object[][] AIRPORTS = {
+			{"LHR", "London Heathrow", 51.47, -0.45, 80},
+			{"CDG", "Paris Charles de Gaulle", 49.01, 2.55, 76},
+			{"AMS", "Amsterdam Schiphol", 52.31, 4.76, 71},
+			{"FRA", "Frankfurt", 50.03, 8.57, 70},
+			{"MAD", "Madrid Barajas", 40.47, -3.56, 61},
+			{"BCN", "Barcelona El Prat", 41.30, 2.08, 52},
+			{"FCO", "Rome Fiumicino", 41.80, 12.25, 43},
+			{"MUC", "Munich", 48.35, 11.79, 47},
+			{"LGW", "London Gatwick", 51.15, -0.19, 46},
+			{"DUB", "Dublin", 53.42, -6.27, 32},
+			{"ZRH", "Zurich", 47.46, 8.55, 31},
+			{"CPH", "Copenhagen", 55.62, 12.66, 30},
+			{"OSL", "Oslo Gardermoen", 60.19, 11.10, 28},
+			{"VIE", "Vienna", 48.11, 16.57, 31},
+			{"MAN", "Manchester", 53.35, -2.27, 29},
+			{"PMI", "Palma de Mallorca", 39.55, 2.74, 29},
+			{"ARN", "Stockholm Arlanda", 59.65, 17.92, 26},
+			{"LIS", "Lisbon", 38.78, -9.14, 31},
+			{"BRU", "Brussels", 50.90, 4.48, 26},
+			{"STN", "London Stansted", 51.89, 0.24, 28},
+			{"DUS", "Dusseldorf", 51.29, 6.77, 25},
+			{"HEL", "Helsinki", 60.32, 24.96, 21},
+			{"ATH", "Athens", 37.94, 23.94, 25},
+			{"EDI", "Edinburgh", 55.95, -3.37, 14},
+			{"BHX", "Birmingham", 52.45, -1.75, 12},
+			{"GLA", "Glasgow", 55.87, -4.43, 9},
+			{"BRS", "Bristol", 51.38, -2.72, 9},
+			{"NCL", "Newcastle", 55.04, -1.69, 5},
+			{"BFS", "Belfast International", 54.66, -6.22, 6},
+			{"AGP", "Malaga", 36.67, -4.50, 20}};
+
+	//type code, model, manufacturer, seats, cabin crew required, share of the fleet
+	private static final Object[][] TYPES = {
+			{"A319", "A319-100", "Airbus", 144, 3, 15},
+			{"A320", "A320-200", "Airbus", 180, 4, 35},
+			{"A321", "A321-200", "Airbus", 220, 5, 15},
+			{"B738", "737-800", "Boeing", 189, 4, 28},
+			{"B772", "777-200", "Boeing", 314, 8, 7}};
+
+	//relative number of departures in each hour of the day, with banks in the morning and evening
+	private static final int[] HOURS = {0, 0, 0, 0, 0, 2, 8, 10, 9, 7, 6, 6, 6, 6, 6, 6, 7, 9, 10, 8, 5, 3, 1, 0};
+
+	private static final String[] FORENAMES = {"Olivia", "Jack", "Amelia", "Harry", "Isla", "Oliver", "Ava", "Charlie", "Mia",
+			"George", "Sofia", "Noah", "Grace", "Leo", "Lily", "Arthur", "Freya", "Oscar", "Emily", "Muhammad"};
+	private static final String[] SURNAMES = {"Smith", "Jones", "Taylor", "Brown", "Williams", "Wilson", "Johnson", "Davies",
+			"Patel", "Robinson", "Wright", "Thompson", "Evans", "Walker", "White", "Roberts", "Green", "Hall", "Khan", "Ahmed"};
+
+	private static final int BATCH_SIZE = 10_000;
+
+	private final long seed;
+	private int aircraft = 50;
+	private int pilots = 300;
+	private int cabinCrew = 750;
+	private int routes = 500;
+	private long passengerRows = 500L / 7 * 28;
+	private LocalDate startDate = LocalDate.of(2021, 2, 1);
+
+	/**
+	 * Creates a generator for a small data set, use the setters to scale it up
+	 * @param seed the seed everything is generated from
+	 */
+	public DatasetGenerator(long seed) {
+		this.seed = seed;
+	}
+
+	public static void main(String[] args) throws IOException, SQLException, XMLStreamException {
+		if(args.length < 1) {
+			System.err.println("Usage: DatasetGenerator directory [aircraft] [crew] [weekly routes] [passenger rows] [seed]");
+			System.exit(1);
+		}
+		DatasetGenerator generator = new DatasetGenerator(args.length > 5 ? Long.parseLong(args[5]) : 1L);
+		if(args.length > 1) {
+			generator.setAircraft(Integer.parseInt(args[1]));
+		}
+		if(args.length > 2) {
+			//about two cabin crew to every pilot, as in the sample data
+			int crew = Integer.parseInt(args[2]);
+			generator.setPilots(crew * 2 / 7);
+			generator.setCabinCrew(crew - crew * 2 / 7);
+		}
+		if(args.length > 3) {
+			generator.setRoutes(Integer.parseInt(args[3]));
+		}
+		if(args.length > 4) {
+			generator.setPassengerRows(Long.parseLong(args[4]));
+		}
+
+		Path dir = Paths.get(args[0]);
+		Files.createDirectories(dir);
+		long start = System.nanoTime();
+		generator.writeAll(dir);
+		System.out.printf("Wrote %d aircraft, %d pilots, %d cabin crew, %d routes and %d passenger rows to %s in %.1f s%n",
+				generator.aircraft, generator.pilots, generator.cabinCrew, generator.routes, generator.passengerRows, dir,
+				(System.nanoTime() - start) / 1e9);
+	}
+
+	/**
+	 * Sets the number of aircraft
+	 * @param aircraft the number of aircraft
+	 */
+	public void setAircraft(int aircraft) {
+		this.aircraft = aircraft;
+	}
+
+	/**
+	 * Sets the number of pilots
+	 * @param pilots the number of pilots
+	 */
+	public void setPilots(int pilots) {
+		this.pilots = pilots;
+	}
+
+	/**
+	 * Sets the number of cabin crew
+	 * @param cabinCrew the number of cabin crew
+	 */
+	public void setCabinCrew(int cabinCrew) {
+		this.cabinCrew = cabinCrew;
+	}
+
+	/**
+	 * Sets the number of routes. Each route flies once a week, and the routes are spread evenly over the week
+	 * @param routes the number of routes
+	 */
+	public void setRoutes(int routes) {
+		this.routes = routes;
+	}
+
+	/**
+	 * Sets the number of passenger forecasts. Forecasts are written for every flight, a day at a time from
+	 * the start date, until there are this many
+	 * @param passengerRows the number of rows in the passenger numbers database
+	 */
+	public void setPassengerRows(long passengerRows) {
+		this.passengerRows = passengerRows;
+	}
+
+	/**
+	 * Sets the first date with passenger forecasts
+	 * @param startDate the first date
+	 */
+	public void setStartDate(LocalDate startDate) {
+		this.startDate = startDate;
+	}
+
+	/**
+	 * Writes all four files into a directory, with the same names as the files in data/
+	 * @param dir the directory, which must already exist
+	 */
+	public void writeAll(Path dir) throws IOException, SQLException, XMLStreamException {
+		writeAircraft(dir.resolve(AIRCRAFT_FILE));
+		writeCrew(dir.resolve(CREW_FILE));
+		writeRoutes(dir.resolve(ROUTES_FILE));
+		writePassengers(dir.resolve(PASSENGERS_FILE));
+	}
+
+	/**
+	 * Returns the tail code of the nth aircraft written by writeAircraft()
+	 * @param i the index of the aircraft
+	 * @return the tail code
+	 */
+	static String tailCode(int i) {
+		return "G-" + Integer.toString(i, 36).toUpperCase();
+	}
+
+	/**
+	 * Returns the code of every airport the data sets use
+	 * @return the airport codes, busiest first
+	 */
+	static String[] airportCodes() {
+		return Arrays.stream(AIRPORTS).map(a -> (String) a[0]).toArray(String[]::new);
+	}
+
+	/**
+	 * Returns the code of every aircraft type the data sets use
+	 * @return the type codes
+	 */
+	static String[] typeCodes() {
+		return Arrays.stream(TYPES).map(t -> (String) t[0]).toArray(String[]::new);
+	}
+
+	/**
+	 * Writes the aircraft CSV file, starting each aircraft at an airport picked by size
+	 * @param p the file to write
+	 */
+	public void writeAircraft(Path p) throws IOException {
+		Random random = new Random(seed ^ 0x41495243L);
+		WeightedChoice airports = new WeightedChoice(AIRPORTS, 4);
+		WeightedChoice types = new WeightedChoice(TYPES, 5);
+
+		try (BufferedWriter out = Files.newBufferedWriter(p)) {
+			out.write("Tailcode,Model,Type,Manufacturer,StartingPosition,Seats,CabinCrewRequired\n");
+			for(int i = 0; i < aircraft; i++) {
+				Object[] type = TYPES[types.next(random)];
+				out.write(tailCode(i) + "," + type[1] + "," + type[0] + "," + type[2] + "," + AIRPORTS[airports.next(random)][0] + ","
+						+ type[3] + "," + type[4] + "\n");
+			}
+		}
+	}
+
+	/**
+	 * Writes the crew JSON file. Crew are based at airports picked by size and rated for one or two types
+	 * picked by their share of the fleet, half of the pilots are captains
+	 * @param p the file to write
+	 */
+	public void writeCrew(Path p) throws IOException {
+		Random random = new Random(seed ^ 0x43524557L);
+		WeightedChoice airports = new WeightedChoice(AIRPORTS, 4);
+		WeightedChoice types = new WeightedChoice(TYPES, 5);
+
+		try (BufferedWriter out = Files.newBufferedWriter(p)) {
+			out.write("{\"pilots\":[");
+			for(int i = 0; i < pilots; i++) {
+				out.write(i == 0 ? "\n" : ",\n");
+				writeCrewMember(out, random, airports, types, i % 2 == 0 ? "CAPTAIN" : "FIRST_OFFICER");
+			}
+			out.write("],\n\"cabincrew\":[");
+			for(int i = 0; i < cabinCrew; i++) {
+				out.write(i == 0 ? "\n" : ",\n");
+				writeCrewMember(out, random, airports, types, null);
+			}
+			out.write("]}\n");
+		}
+	}
+
+	private static void writeCrewMember(BufferedWriter out, Random random, WeightedChoice airports, WeightedChoice types,
+			String rank) throws IOException {
+		out.write("{\"forename\":\"" + FORENAMES[random.nextInt(FORENAMES.length)] + "\",\"surname\":\""
+				+ SURNAMES[random.nextInt(SURNAMES.length)] + "\",\"home_airport\":\"" + AIRPORTS[airports.next(random)][0] + "\",");
+		if(rank != null) {
+			out.write("\"rank\":\"" + rank + "\",");
+		}
+		int first = types.next(random);
+		out.write("\"type_ratings\":[\"" + TYPES[first][0] + "\"");
+		if(random.nextInt(4) == 0) {
+			int second = types.next(random);
+			if(second != first) {
+				out.write(",\"" + TYPES[second][0] + "\"");
+			}
+		}
+		out.write("]}");
+	}
+
+	/**
+	 * Writes the routes XML file. Route i is flight number i + 1 and flies on day i % 7, Monday first, between
+	 * two airports picked by size
+	 * @param p the file to write
+	 */
+	public void writeRoutes(Path p) throws IOException, XMLStreamException {
+		Random random = new Random(seed ^ 0x524f5554L);
+		WeightedChoice airports = new WeightedChoice(AIRPORTS, 4);
+		WeightedChoice hours = new WeightedChoice(HOURS);
+
+		try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(p), 1 << 16)) {
+			XMLStreamWriter xml = XMLOutputFactory.newInstance().createXMLStreamWriter(stream, "UTF-8");
+			xml.writeStartDocument("UTF-8", "1.0");
+			xml.writeCharacters("\n");
+			xml.writeStartElement("Routes");
+			for(int i = 0; i < routes; i++) {
+				int from = airports.next(random);
+				int to;
+				do {
+					to = airports.next(random);
+				} while(to == from);
+				LocalTime departs = LocalTime.of(hours.next(random), random.nextInt(12) * 5);
+				int minutes = flightMinutes(from, to);
+
+				xml.writeCharacters("\n");
+				xml.writeStartElement("Route");
+				element(xml, "FlightNumber", Integer.toString(i + 1));
+				element(xml, "DayOfWeek", DAYS[i % 7]);
+				element(xml, "DepartureTime", departs.toString());
+				element(xml, "DepartureAirport", (String) AIRPORTS[from][1]);
+				element(xml, "DepartureAirportIATACode", (String) AIRPORTS[from][0]);
+				element(xml, "ArrivalTime", departs.plusMinutes(minutes).toString());
+				element(xml, "ArrivalAirport", (String) AIRPORTS[to][1]);
+				element(xml, "ArrivalAirportIATACode", (String) AIRPORTS[to][0]);
+				element(xml, "Duration", "PT" + minutes + "M");
+				xml.writeEndElement();
+			}
+			xml.writeCharacters("\n");
+			xml.writeEndElement();
+			xml.writeEndDocument();
+			xml.close();
+		}
+	}
+
+	private static void element(XMLStreamWriter xml, String name, String text) throws XMLStreamException {
+		xml.writeStartElement(name);
+		xml.writeCharacters(text);
+		xml.writeEndElement();
+	}
+
+	//great circle distance at 800 km/h plus 30 minutes for taxiing, climb and descent, to the nearest 5 minutes
+	private static int flightMinutes(int from, int to) {
+		double lat1 = Math.toRadians((Double) AIRPORTS[from][2]);
+		double lat2 = Math.toRadians((Double) AIRPORTS[to][2]);
+		double dLon = Math.toRadians((Double) AIRPORTS[to][3] - (Double) AIRPORTS[from][3]);
+		double km = 6371 * Math.acos(Math.min(1, Math.sin(lat1) * Math.sin(lat2) + Math.cos(lat1) * Math.cos(lat2) * Math.cos(dLon)));
+		return (int) Math.round((km / 800 * 60 + 30) / 5) * 5;
+	}
+
+	/**
+	 * Writes the passenger numbers SQLite database. Each route has its own typical load, which the forecasts vary
+	 * around, a little busier at the end of the week. The rows are inserted in batches in a single transaction
+	 * @param p the file to write, replacing it if it exists
+	 */
+	public void writePassengers(Path p) throws IOException, SQLException {
+		Files.deleteIfExists(p);
+		Random random = new Random(seed ^ 0x50415353L);
+		int[] typicalLoad = new int[routes];
+		for(int i = 0; i < routes; i++) {
+			typicalLoad[i] = 60 + random.nextInt(200);
+		}
+
+		try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + p)) {
+			try (Statement setup = conn.createStatement()) {
+				//a half written file is thrown away anyway, so there is no point journaling
+				setup.execute("PRAGMA journal_mode = OFF");
+				setup.execute("PRAGMA synchronous = OFF");
+				setup.execute("CREATE TABLE PassengerNumbers (Date TEXT, FlightNumber INTEGER, LoadEstimate INTEGER)");
+			}
+			conn.setAutoCommit(false);
+
+			try (PreparedStatement insert = conn.prepareStatement("INSERT INTO PassengerNumbers VALUES (?, ?, ?)")) {
+				long written = 0;
+				int batched = 0;
+				for(LocalDate date = startDate; written < passengerRows && routes > 0; date = date.plusDays(1)) {
+					int day = date.getDayOfWeek().getValue() - 1;
+					double busier = day >= 4 ? 1.1 : 1.0;
+					String text = date.toString();
+					for(int i = day; i < routes && written < passengerRows; i += 7) {
+						int load = (int) Math.round(typicalLoad[i] * busier * (0.8 + 0.4 * random.nextDouble()));
+						insert.setString(1, text);
+						insert.setInt(2, i + 1);
+						insert.setInt(3, Math.min(load, 350));
+						insert.addBatch();
+						written++;
+						if(++batched == BATCH_SIZE) {
+							insert.executeBatch();
+							batched = 0;
+						}
+					}
+				}
+				insert.executeBatch();
+			}
+			conn.commit();
+
+			//the date range and on-demand loaders look rows up by date
+			try (Statement index = conn.createStatement()) {
+				index.execute("CREATE INDEX PassengerNumbersByDate ON PassengerNumbers (Date)");
+			}
+			conn.commit();
+		}
+	}
+
+	/**
+	 * Picks indexes with probability proportional to their weights, by binary search over the running totals
+	 */
+	private static final class WeightedChoice {
+
+		private final int[] totals;
+
+		WeightedChoice(int[] weights) {
+			totals = new int[weights.length];
+			int total = 0;
+			for(int i = 0; i < weights.length; i++) {
+				total += weights[i];
+				totals[i] = total;
+			}
+		}
+
+		WeightedChoice(Object[][] rows, int column) {
+			this(Arrays.stream(rows).mapToInt(row -> (Integer) row[column]).toArray());
+		}
+
+		int next(Random random) {
+			int pick = random.nextInt(totals[totals.length - 1]);
+			//the first index whose running total is past the pick, which skips any with no weight
+			int low = 0;
+			int high = totals.length - 1;
+			while(low < high) {
+				int mid = (low + high) >>> 1;
+				if(totals[mid] > pick) {
+					high = mid;
+				} else {
+					low = mid + 1;
+				}
+			}
+			return low;
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package solution;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import baseclasses.DataLoadingException;
+
+/**
+ * JMH benchmarks for loading each of the four data files into a fresh DAO.
+ * The files are written once per trial by BenchmarkData, sized by the number of aircraft.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoaderBenchmarks {
+
+	@Param({"100", "1000", "10000"})
+	public int aircraft;
+
+	private Path dir;
+
+	@Setup
+	public void writeData() throws IOException, SQLException {
+		dir = Files.createTempDirectory("loader-bench");
+		BenchmarkData.writeDataset(dir, aircraft, 1L);
+	}
+
+	@TearDown
+	public void deleteData() throws IOException {
+		BenchmarkData.delete(dir);
+	}
+
+	@Benchmark
+	public AircraftDAO loadAircraftData() throws DataLoadingException {
+		AircraftDAO dao = new AircraftDAO();
+		dao.loadAircraftData(dir.resolve(BenchmarkData.AIRCRAFT));
+		return dao;
+	}
+
+	@Benchmark
+	public CrewDAO loadCrewData() throws DataLoadingException {
+		CrewDAO dao = new CrewDAO();
+		dao.loadCrewData(dir.resolve(BenchmarkData.CREW));
+		return dao;
+	}
+
+	@Benchmark
+	public RouteDAO loadRouteData() throws DataLoadingException {
+		RouteDAO dao = new RouteDAO();
+		dao.loadRouteData(dir.resolve(BenchmarkData.ROUTES));
+		return dao;
+	}
+
+	@Benchmark
+	public PassengerNumbersDAO loadPassengerNumbersData() throws DataLoadingException {
+		PassengerNumbersDAO dao = new PassengerNumbersDAO();
+		dao.loadPassengerNumbersData(dir.resolve(BenchmarkData.PASSENGERS));
+		return dao;
+	}
+}
@@ -0,0 +1,128 @@
+package solution;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import baseclasses.Aircraft;
+import baseclasses.CabinCrew;
+import baseclasses.DataLoadingException;
+import baseclasses.Pilot;
+import baseclasses.Route;
+
+/**
+ * JMH benchmarks for the DAO finder methods and passenger number lookups, on DAOs loaded once per trial.
+ *
+ * Each call looks up the next of a fixed cycle of keys, so the results aren't down to one key being hot in the cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmarks {
+
+	@Param({"100", "1000", "10000"})
+	public int aircraft;
+
+	private final AircraftDAO aircraftDAO = new AircraftDAO();
+	private final CrewDAO crewDAO = new CrewDAO();
+	private final RouteDAO routeDAO = new RouteDAO();
+	private final PassengerNumbersDAO passengerNumbersDAO = new PassengerNumbersDAO();
+
+	private int[] flightNumbers;
+	private LocalDate[] dates;
+	private int next;
+
+	@Setup
+	public void loadData() throws IOException, SQLException, DataLoadingException {
+		Path dir = Files.createTempDirectory("lookup-bench");
+		try {
+			BenchmarkData.writeDataset(dir, aircraft, 1L);
+			aircraftDAO.loadAircraftData(dir.resolve(BenchmarkData.AIRCRAFT));
+			crewDAO.loadCrewData(dir.resolve(BenchmarkData.CREW));
+			routeDAO.loadRouteData(dir.resolve(BenchmarkData.ROUTES));
+			passengerNumbersDAO.loadPassengerNumbersData(dir.resolve(BenchmarkData.PASSENGERS));
+		}
+		finally {
+			BenchmarkData.delete(dir);
+		}
+
+		//flights that exist, on the days they fly
+		flightNumbers = new int[1024];
+		dates = new LocalDate[flightNumbers.length];
+		int routes = routeDAO.getNumberOfRoutes();
+		for(int i = 0; i < flightNumbers.length; i++) {
+			int route = (int) ((i * 2654435761L) % routes);
+			flightNumbers[i] = route + 1;
+			dates[i] = BenchmarkData.START.plusDays(route % 7 + 7 * (i % (BenchmarkData.PASSENGER_DAYS / 7)));
+		}
+	}
+
+	private int next() {
+		next = (next + 1) & (flightNumbers.length - 1);
+		return next;
+	}
+
+	@Benchmark
+	public List<Aircraft> findAircraftBySeats() {
+		return aircraftDAO.findAircraftBySeats(150 + next() % 150);
+	}
+
+	@Benchmark
+	public List<Aircraft> findAircraftByType() {
+		return aircraftDAO.findAircraftByType(BenchmarkData.TYPES[next() % BenchmarkData.TYPES.length]);
+	}
+
+	@Benchmark
+	public Aircraft findAircraftByTailCode() {
+		return aircraftDAO.findAircraftByTailCode(DatasetGenerator.tailCode(next() % aircraft));
+	}
+
+	@Benchmark
+	public List<Pilot> findPilotsByHomeBaseAndTypeRating() {
+		int i = next();
+		return crewDAO.findPilotsByHomeBaseAndTypeRating(BenchmarkData.TYPES[i % BenchmarkData.TYPES.length],
+				BenchmarkData.AIRPORTS[i % BenchmarkData.AIRPORTS.length]);
+	}
+
+	@Benchmark
+	public List<CabinCrew> findCabinCrewByTypeRating() {
+		return crewDAO.findCabinCrewByTypeRating(BenchmarkData.TYPES[next() % BenchmarkData.TYPES.length]);
+	}
+
+	@Benchmark
+	public List<Route> findRoutesByDepartureAirportAndDay() {
+		int i = next();
+		return routeDAO.findRoutesByDepartureAirportAndDay(BenchmarkData.AIRPORTS[i % BenchmarkData.AIRPORTS.length],
+				BenchmarkData.DAYS[i % 7]);
+	}
+
+	@Benchmark
+	public List<Route> findRoutesbyDate() {
+		return routeDAO.findRoutesbyDate(dates[next()]);
+	}
+
+	@Benchmark
+	public int getPassengerNumbersFor() {
+		int i = next();
+		return passengerNumbersDAO.getPassengerNumbersFor(flightNumbers[i], dates[i]);
+	}
+}
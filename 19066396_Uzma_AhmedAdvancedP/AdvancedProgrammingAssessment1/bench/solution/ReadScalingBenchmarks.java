@@ -0,0 +1,179 @@
+package solution;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import baseclasses.Aircraft;
+import baseclasses.DataLoadingException;
+import baseclasses.Pilot;
+import baseclasses.Route;
+
+/**
+ * JMH benchmarks for DAO lookups made from many threads at once on one shared set of DAOs, to show how read
+ * throughput scales with threads. Run them at several thread counts with BenchmarkRunner, e.g.
+ * BenchmarkRunner ReadScalingBenchmarks 1000 1,2,4,8
+ *
+ * With loading=true a background thread keeps loading the data files into the same DAOs while the lookups run,
+ * starting again from one copy of each file whenever it has loaded four, so the readers are measured while loads
+ * publish new contents underneath them.
+ *
+ * getPassengerNumbersOnDemand looks the same flights up in a DAO loading passenger numbers on demand, with room
+ * for every date, so after the first iteration it measures reads of dates already fetched.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReadScalingBenchmarks {
+
+	@Param({"1000", "10000"})
+	public int aircraft;
+
+	@Param({"false", "true"})
+	public boolean loading;
+
+	private final AircraftDAO aircraftDAO = new AircraftDAO();
+	private final CrewDAO crewDAO = new CrewDAO();
+	private final RouteDAO routeDAO = new RouteDAO();
+	private final PassengerNumbersDAO passengerNumbersDAO = new PassengerNumbersDAO();
+	private final PassengerNumbersDAO onDemandDAO = new PassengerNumbersDAO();
+
+	private Path dir;
+	private Thread loader;
+	private volatile boolean stopped;
+
+	private int[] flightNumbers;
+	private LocalDate[] dates;
+
+	/**
+	 * Where each thread is in the cycle of keys, so the threads don't share a counter
+	 */
+	@State(Scope.Thread)
+	public static class Cursor {
+		private int next;
+
+		int next(int length) {
+			next = (next + 1) & (length - 1);
+			return next;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void loadData() throws IOException, SQLException, DataLoadingException {
+		dir = Files.createTempDirectory("read-scaling-bench");
+		BenchmarkData.writeDataset(dir, aircraft, 1L);
+		loadAll();
+		onDemandDAO.loadPassengerNumbersOnDemand(dir.resolve(BenchmarkData.PASSENGERS), BenchmarkData.PASSENGER_DAYS);
+
+		flightNumbers = new int[1024];
+		dates = new LocalDate[flightNumbers.length];
+		int routes = routeDAO.getNumberOfRoutes();
+		for(int i = 0; i < flightNumbers.length; i++) {
+			int route = (int) ((i * 2654435761L) % routes);
+			flightNumbers[i] = route + 1;
+			dates[i] = BenchmarkData.START.plusDays(route % 7 + 7 * (i % (BenchmarkData.PASSENGER_DAYS / 7)));
+		}
+
+		if(loading) {
+			stopped = false;
+			loader = new Thread(this::keepLoading, "bench-loader");
+			loader.setDaemon(true);
+			loader.start();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteData() throws IOException, InterruptedException {
+		stopped = true;
+		if(loader != null) {
+			loader.join();
+			loader = null;
+		}
+		onDemandDAO.reset();//closes the database
+		BenchmarkData.delete(dir);
+	}
+
+	private void loadAll() throws DataLoadingException {
+		aircraftDAO.loadAircraftData(dir.resolve(BenchmarkData.AIRCRAFT));
+		crewDAO.loadCrewData(dir.resolve(BenchmarkData.CREW));
+		routeDAO.loadRouteData(dir.resolve(BenchmarkData.ROUTES));
+		passengerNumbersDAO.loadPassengerNumbersData(dir.resolve(BenchmarkData.PASSENGERS));
+	}
+
+	private void keepLoading() {
+		try {
+			int loads = 1;
+			while(!stopped) {
+				if(loads == 4) {
+					aircraftDAO.reset();
+					crewDAO.reset();
+					routeDAO.reset();
+					passengerNumbersDAO.reset();
+					loads = 0;
+				}
+				loadAll();
+				loads++;
+			}
+		}
+		catch(DataLoadingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@Benchmark
+	public List<Aircraft> findAircraftByType(Cursor cursor) {
+		return aircraftDAO.findAircraftByType(BenchmarkData.TYPES[cursor.next(1024) % BenchmarkData.TYPES.length]);
+	}
+
+	@Benchmark
+	public List<Aircraft> findAircraftBySeats(Cursor cursor) {
+		return aircraftDAO.findAircraftBySeats(150 + cursor.next(1024) % 150);
+	}
+
+	@Benchmark
+	public List<Pilot> findPilotsByHomeBaseAndTypeRating(Cursor cursor) {
+		int i = cursor.next(1024);
+		return crewDAO.findPilotsByHomeBaseAndTypeRating(BenchmarkData.TYPES[i % BenchmarkData.TYPES.length],
+				BenchmarkData.AIRPORTS[i % BenchmarkData.AIRPORTS.length]);
+	}
+
+	@Benchmark
+	public List<Route> findRoutesByDepartureAirportAndDay(Cursor cursor) {
+		int i = cursor.next(1024);
+		return routeDAO.findRoutesByDepartureAirportAndDay(BenchmarkData.AIRPORTS[i % BenchmarkData.AIRPORTS.length],
+				BenchmarkData.DAYS[i % 7]);
+	}
+
+	@Benchmark
+	public int getPassengerNumbersFor(Cursor cursor) {
+		int i = cursor.next(flightNumbers.length);
+		return passengerNumbersDAO.getPassengerNumbersFor(flightNumbers[i], dates[i]);
+	}
+
+	@Benchmark
+	public int getPassengerNumbersOnDemand(Cursor cursor) {
+		int i = cursor.next(flightNumbers.length);
+		return onDemandDAO.getPassengerNumbersFor(flightNumbers[i], dates[i]);
+	}
+}
@@ -0,0 +1,73 @@
+package solution;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import baseclasses.DataLoadingException;
+import baseclasses.Schedule;
+
+/**
+ * JMH benchmark for generating a whole schedule, end to end, on DAOs loaded once per trial.
+ * A schedule takes long enough that each one is timed on its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SchedulerBenchmark {
+
+	@Param({"100", "1000"})
+	public int aircraft;
+
+	@Param({"7", "28"})
+	public int days;
+
+	private final AircraftDAO aircraftDAO = new AircraftDAO();
+	private final CrewDAO crewDAO = new CrewDAO();
+	private final RouteDAO routeDAO = new RouteDAO();
+	private final PassengerNumbersDAO passengerNumbersDAO = new PassengerNumbersDAO();
+
+	@Setup
+	public void loadData() throws IOException, SQLException, DataLoadingException {
+		Path dir = Files.createTempDirectory("scheduler-bench");
+		try {
+			BenchmarkData.writeDataset(dir, aircraft, 1L);
+			aircraftDAO.loadAircraftData(dir.resolve(BenchmarkData.AIRCRAFT));
+			crewDAO.loadCrewData(dir.resolve(BenchmarkData.CREW));
+			routeDAO.loadRouteData(dir.resolve(BenchmarkData.ROUTES));
+			passengerNumbersDAO.loadPassengerNumbersData(dir.resolve(BenchmarkData.PASSENGERS));
+		}
+		finally {
+			BenchmarkData.delete(dir);
+		}
+	}
+
+	@Benchmark
+	public Schedule generateSchedule() {
+		return new Scheduler().generateSchedule(aircraftDAO, crewDAO, routeDAO, passengerNumbersDAO,
+				BenchmarkData.START, BenchmarkData.START.plusDays(days - 1));
+	}
+
+	@Benchmark
+	public Schedule generateScheduleInParallel() {
+		return new ParallelScheduler().generateSchedule(aircraftDAO, crewDAO, routeDAO, passengerNumbersDAO,
+				BenchmarkData.START, BenchmarkData.START.plusDays(days - 1));
+	}
+}
@@ -0,0 +1,132 @@
+package solution;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * The scheduler's events recorded as JFR events. SchedulerEvents finds this class by name, so nothing in src
+ * refers to jdk.jfr and src still builds for Java 8.
+ *
+ * Each event the scheduler fills in wraps a JFR event, which is only recorded while a flight recording is running
+ * with it enabled.
+ */
+final class JfrSchedulerEvents extends SchedulerEvents {
+
+	public JfrSchedulerEvents() {
+		//load the event classes now, so a JVM without JFR falls back to the disabled events straight away
+		new FlightAllocated();
+		new ScheduleGenerated();
+	}
+
+	@Override
+	FlightAllocatedEvent newFlightAllocated() {
+		return new JfrFlightAllocatedEvent();
+	}
+
+	@Override
+	ScheduleGeneratedEvent newScheduleGenerated() {
+		return new JfrScheduleGeneratedEvent();
+	}
+
+	private static final class JfrFlightAllocatedEvent extends FlightAllocatedEvent {
+		private final FlightAllocated event = new FlightAllocated();
+
+		@Override
+		void begin() {
+			event.begin();
+		}
+
+		@Override
+		void end() {
+			event.end();
+		}
+
+		@Override
+		boolean shouldCommit() {
+			return event.shouldCommit();
+		}
+
+		@Override
+		void commit() {
+			event.flightNumber = flightNumber;
+			event.departure = departure;
+			event.aircraftNanos = aircraftNanos;
+			event.pilotNanos = pilotNanos;
+			event.cabinCrewNanos = cabinCrewNanos;
+			event.completionNanos = completionNanos;
+			event.complete = complete;
+			event.commit();
+		}
+	}
+
+	private static final class JfrScheduleGeneratedEvent extends ScheduleGeneratedEvent {
+		private final ScheduleGenerated event = new ScheduleGenerated();
+
+		@Override
+		void begin() {
+			event.begin();
+		}
+
+		@Override
+		void commit(Class<?> scheduler, SchedulingReport report) {
+			event.end();
+			if(event.shouldCommit()) {
+				event.scheduler = scheduler.getSimpleName();
+				event.flights = report.getFlights();
+				event.uncovered = report.getUncoveredFlights().size();
+				event.commit();
+			}
+		}
+	}
+
+	@Name("solution.FlightAllocated")
+	@Label("Flight Allocated")
+	@Category({"Airline Scheduler"})
+	@Description("The aircraft and crew being chosen for one flight")
+	static final class FlightAllocated extends Event {
+
+		@Label("Flight Number")
+		int flightNumber;
+
+		@Label("Departure")
+		String departure;
+
+		@Label("Aircraft")
+		@Timespan(Timespan.NANOSECONDS)
+		long aircraftNanos;
+
+		@Label("Pilots")
+		@Timespan(Timespan.NANOSECONDS)
+		long pilotNanos;
+
+		@Label("Cabin Crew")
+		@Timespan(Timespan.NANOSECONDS)
+		long cabinCrewNanos;
+
+		@Label("Completion")
+		@Timespan(Timespan.NANOSECONDS)
+		long completionNanos;
+
+		@Label("Complete")
+		boolean complete;
+	}
+
+	@Name("solution.ScheduleGenerated")
+	@Label("Schedule Generated")
+	@Category({"Airline Scheduler"})
+	@Description("A schedule being generated for a scheduling horizon")
+	static final class ScheduleGenerated extends Event {
+
+		@Label("Scheduler")
+		String scheduler;
+
+		@Label("Flights")
+		int flights;
+
+		@Label("Uncovered Flights")
+		int uncovered;
+	}
+}
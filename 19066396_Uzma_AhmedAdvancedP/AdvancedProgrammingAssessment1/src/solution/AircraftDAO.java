@@ -1,10 +1,12 @@
 package solution;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import baseclasses.Aircraft;
 import baseclasses.Aircraft.Manufacturer;
@@ -17,11 +19,18 @@ import baseclasses.IAircraftDAO;
 /**
  * The AircraftDAO class is responsible for loading aircraft data from CSV files
  * and contains methods to help the system find aircraft when scheduling
+ *
+ * It is safe to search from any number of threads while files are being loaded. The loaded aircraft and their
+ * indexes are held in Contents that never change once published: each load builds new contents and swaps them in
+ * with one volatile write. A finder reads the contents once, so it never sees a load half done
  */
 public class AircraftDAO implements IAircraftDAO {
 
-	//The data structure we'll use to store the aircraft we've loaded
-	List<Aircraft> aircraftList = new ArrayList<>();
+	//orders aircraft by number of seats, smallest first
+	private static final Comparator<Aircraft> BY_SEATS = Comparator.comparingInt(Aircraft::getSeats);
+
+	//everything loaded so far. Loads build new contents and publish them here, so readers never need a lock
+	volatile Contents contents = Contents.EMPTY;
 
 	/**
 	 * Loads the aircraft data from the specified file, adding them to the currently loaded aircraft
@@ -29,33 +38,27 @@ public class AircraftDAO implements IAircraftDAO {
 	 * @param p A Path pointing to the file from which data could be loaded
 	 * @throws DataLoadingException if anything goes wrong. The exception's "cause" indicates the underlying exception
 	 *
-	 * Initially, this contains some starter code to help you get started in reading the CSV file...
+	 * The file is streamed through a CsvReader, which splits each row in place and parses the numbers straight from the bytes.
+	 * Files can be loaded from several threads at once: each is parsed on its own, and only adding the aircraft to the
+	 * DAO is done while holding its lock
 	 */
 	@Override
 	public void loadAircraftData(Path p) throws DataLoadingException  {	
-		try {
-			//open the file
-			BufferedReader reader = Files.newBufferedReader(p);
-
-			//read the file line by line
-			String line = "";
-
+		List<Aircraft> loaded = new ArrayList<>();
+		try (CsvReader reader = new CsvReader(p)) {
 			//skip the first line of the file - headers
-			reader.readLine();
-
-			while( (line = reader.readLine()) != null) {
-				//each line has fields separated by commas, split into an array of fields
-				String[] fields = line.split(",");
-
-				//put some of the fields into variables: check which fields are where atop the CSV file itself
-				String tailcode = fields[0];
-				String model=fields[1];
-				String type = fields[2];
-			
-				Manufacturer manufacturer=Manufacturer.valueOf(fields[3].toUpperCase());
-				String startingPosition=fields[4];
-				int seats = Integer.parseInt(fields[5]);
-				int cabinCrewRequired=Integer.parseInt(fields[6]);
+			reader.nextRow();
+
+			while(reader.nextRow()) {
+				//put the fields into variables: check which fields are where atop the CSV file itself
+				String tailcode = reader.getString(0);
+				String model = reader.getString(1);
+				//the codes are swapped for the shared instances, so the fleet holds one String for each code
+				String type = SymbolTable.TYPES.intern(reader.getString(2));
+				Manufacturer manufacturer = Manufacturer.valueOf(reader.getString(3).toUpperCase());
+				String startingPosition = SymbolTable.AIRPORTS.intern(reader.getString(4));
+				int seats = reader.getInt(5);
+				int cabinCrewRequired = reader.getInt(6);
 
 				//create an Aircraft object, and set  its properties
 				Aircraft a = new Aircraft();
@@ -67,27 +70,107 @@ public class AircraftDAO implements IAircraftDAO {
 				a.setManufacturer(manufacturer);
 				a.setStartingPosition(startingPosition);
 
-				//add the aircraft to our list
-				aircraftList.add(a);
+				loaded.add(a);
+			}
+		}
 
+		catch (IOException | IllegalArgumentException | NullPointerException e) {//exception e
+			e.printStackTrace();
+			throw new DataLoadingException(e);
+		}
+		finally {
+			//keep any aircraft read before a failure, as before
+			add(loaded);
+		}
 
-				/*String str= "Aircraft: " + tailcode + " is a " + type + " with " + seats + " seats."+" With a model ="+model+" and manufacturer: "+manufacturer+"starting position " +startingPosition;
+	}
 
-				String aircraft[]=str.split("+");
+	/**
+	 * Adds aircraft to our list and the indexes, as if they had been loaded from a file.
+	 * Loads are serialised on the DAO's lock, but searches carry on with the old contents until the new are published
+	 * @param loaded the aircraft to add
+	 */
+	synchronized void add(List<Aircraft> loaded) {
+		if(!loaded.isEmpty()) {
+			contents = contents.plus(loaded);
+		}
+	}
 
-				for(int i=0;i<aircraft.length;i++) {
-					System.out.println(aircraft[i]);
-				}*/
+	/**
+	 * Replaces all of the loaded aircraft with others, publishing them with one write, so searches see either
+	 * the old aircraft or the new and never an empty DAO in between
+	 * @param aircraft the aircraft to hold instead
+	 */
+	synchronized void replace(List<Aircraft> aircraft) {
+		contents = new Contents(new ArrayList<>(aircraft));
+	}
 
-				System.out.println("Aircraft: " + tailcode + " is a " + type + " with " + seats + " seats."+" With a model ="+model+" and manufacturer: "+manufacturer+"starting position " +startingPosition);
+	/**
+	 * The loaded aircraft and the indexes over them. Nothing in here is changed once it has been built
+	 */
+	static final class Contents {
+
+		static final Contents EMPTY = new Contents(new ArrayList<>());
+
+		//The data structure we'll use to store the aircraft we've loaded
+		final List<Aircraft> aircraftList;
+
+		//indexes over aircraftList, so the finders don't have to scan the whole fleet
+		final Map<String, Aircraft> tailCodeIndex = new HashMap<>();
+		//indexed by SymbolTable.TYPES and SymbolTable.AIRPORTS id
+		final List<List<Aircraft>> typeIndex = new ArrayList<>();
+		final List<List<Aircraft>> startingPositionIndex = new ArrayList<>();
+		//every loaded aircraft ordered by seats, so "at least N seats" is a binary search followed by a sub list
+		final List<Aircraft> seatIndex;
+		//handed out by getAllAircraft(), made once rather than on every call
+		final List<Aircraft> allAircraft;
+
+		private Contents(List<Aircraft> aircraftList) {
+			this.aircraftList = aircraftList;
+			this.allAircraft = Collections.unmodifiableList(aircraftList);
+			for(Aircraft a : aircraftList) {
+				//if a tail code is loaded twice the first one loaded keeps winning lookups, as it did with the linear scan
+				tailCodeIndex.putIfAbsent(a.getTailCode(), a);
+				index(typeIndex, SymbolTable.TYPES.id(a.getTypeCode()), a);
+				index(startingPositionIndex, SymbolTable.AIRPORTS.id(a.getStartingPosition()), a);
 			}
+			seatIndex = new ArrayList<>(aircraftList);
+			seatIndex.sort(BY_SEATS);
 		}
 
-		catch (IOException | IllegalArgumentException | NullPointerException e) {//exception e
-			e.printStackTrace();
-			throw new DataLoadingException(e);
+		/**
+		 * Adds an aircraft to the bucket for a code's id in one of the code indexes
+		 */
+		private static void index(List<List<Aircraft>> index, int id, Aircraft a) {
+			if(id >= 0) {//an aircraft without the code isn't found by it
+				SymbolTable.getOrCreate(index, id, ArrayList::new).add(a);
+			}
 		}
 
+		/**
+		 * Builds new contents holding these aircraft followed by more. Loads are rare next to searches, so the
+		 * indexes are simply rebuilt over everything
+		 * @param loaded the aircraft to add
+		 * @return the new contents
+		 */
+		Contents plus(List<Aircraft> loaded) {
+			List<Aircraft> all = new ArrayList<>(aircraftList.size() + loaded.size());
+			all.addAll(aircraftList);
+			all.addAll(loaded);
+			return new Contents(all);
+		}
+	}
+
+	/**
+	 * Returns a read-only view of an index bucket, or an empty list if nothing was indexed under that key
+	 * @param bucket the bucket from one of the multimap indexes, possibly null
+	 * @return an unmodifiable view of the bucket
+	 */
+	private static List<Aircraft> view(List<Aircraft> bucket) {
+		if(bucket == null) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(bucket);
 	}
 
 
@@ -96,37 +179,34 @@ public class AircraftDAO implements IAircraftDAO {
 	/**
 	 * Returns a list of all the loaded Aircraft with at least the specified number of seats
 	 * @param seats the number of seats required
-	 * @return a List of all the loaded aircraft with at least this many seats
+	 * @return a read-only view of all the loaded aircraft with at least this many seats, ordered by seats
 	 */
 	@Override
 	public List<Aircraft> findAircraftBySeats(int seats) {
-		List<Aircraft> loadedAircraft = new ArrayList<>();
-
-		
-		for(int i =0;i<aircraftList.size();i++) {
-			if(aircraftList.get(i).getSeats()>=seats) {//if the aircarft seats is greater than the specificed seats - closest possible number
-				loadedAircraft.add(aircraftList.get(i));// add the specificed aircarft to the array list
+		List<Aircraft> seatIndex = contents.seatIndex;
+		//binary search for the first aircraft with at least this many seats, everything after it in the seat index qualifies
+		int low = 0;
+		int high = seatIndex.size();
+		while(low < high) {
+			int mid = (low + high) >>> 1;
+			if(seatIndex.get(mid).getSeats() < seats) {
+				low = mid + 1;
+			} else {
+				high = mid;
 			}
 		}
 
-		return loadedAircraft;//returns the List of all loaded aircraft
+		return Collections.unmodifiableList(seatIndex.subList(low, seatIndex.size()));//smallest suitable aircraft first
 	}
 
 	/**
 	 * Returns a list of all the loaded Aircraft that start at the specified airport code
 	 * @param startingPosition the three letter airport code of the airport at which the desired aircraft start
-	 * @return a List of all the loaded aircraft that start at the specified airport
+	 * @return a read-only view of all the loaded aircraft that start at the specified airport
 	 */
 	@Override
 	public List<Aircraft> findAircraftByStartingPosition(String startingPosition) {
-		List<Aircraft> loadedAircrafts = new ArrayList<Aircraft>();
-		for(Aircraft aircrafts: aircraftList) {
-			if(aircrafts.getStartingPosition().equals(startingPosition))
-				loadedAircrafts.add(aircrafts);
-		}
-
-		return loadedAircrafts;
-
+		return view(SymbolTable.get(contents.startingPositionIndex, SymbolTable.AIRPORTS.find(startingPosition)));
 	}
 
 	/**
@@ -136,45 +216,27 @@ public class AircraftDAO implements IAircraftDAO {
 	 */
 	@Override
 	public Aircraft findAircraftByTailCode(String tailCode) {
-
-		for(int i=0;i<aircraftList.size();i++) {
-			if(aircraftList.get(i).getTailCode().equals(tailCode)) {
-				return aircraftList.get(i);
-			}
-		}
-		
-		return null;
+		return contents.tailCodeIndex.get(tailCode);//null if not found
 	}
 
 	/**
 	 * Returns a List of all the loaded Aircraft with the specified type code
 	 * @param typeCode the type code of the aircraft you wish to find
-	 * @return a List of all the loaded Aircraft with the specified type code
+	 * @return a read-only view of all the loaded Aircraft with the specified type code
 	 */
 	@Override
 	public List<Aircraft> findAircraftByType(String typeCode) {
-		List<Aircraft> loadedAircraft = new ArrayList<>();
-
-		for(Aircraft aircrafts: aircraftList) {
-			if(aircrafts.getTypeCode().equals(typeCode)) {
-				loadedAircraft.add(aircrafts);
-			}
-		}
-
-		return loadedAircraft;
+		return view(SymbolTable.get(contents.typeIndex, SymbolTable.TYPES.find(typeCode)));
 	}
 
 	/**
 	 * Returns a List of all the currently loaded aircraft
-	 * @return a List of all the currently loaded aircraft
+	 * @return a read-only view of all the currently loaded aircraft. Nothing is copied, and the view never changes:
+	 * aircraft loaded afterwards are only in the lists returned by later calls
 	 */
 	@Override
 	public List<Aircraft> getAllAircraft() {
-		List<Aircraft> loadedAircraft = new ArrayList<Aircraft>();
-		for (Aircraft aircrafts : aircraftList) {
-			loadedAircraft.add(aircrafts);
-		}
-		return loadedAircraft;
+		return contents.allAircraft;
 	}
 
 	/**
@@ -184,16 +246,15 @@ public class AircraftDAO implements IAircraftDAO {
 	@Override
 	public int getNumberOfAircraft()  {
 
-		return aircraftList.size();
+		return contents.aircraftList.size();
 	}
 
 	/**
 	 * Unloads all of the aircraft currently loaded, ready to start again if needed
 	 */
 	@Override
-	public void reset() {
-		aircraftList.clear();
-
+	public synchronized void reset() {
+		contents = Contents.EMPTY;
 	}
 
 }
@@ -0,0 +1,176 @@
+package solution;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+import baseclasses.Aircraft;
+import baseclasses.IAircraftDAO;
+
+/**
+ * Chooses which aircraft flies each flight during a scheduling run, sizing the aircraft to the passenger forecast.
+ *
+ * The fleet comes from the DAO's seat index, smallest first, so the aircraft big enough for a flight start at a
+ * binary searched position. From there the fleet is walked once. An available aircraft already at the departure
+ * airport is preferred, but only among those within AIRPORT_SEAT_MARGIN of the smallest aircraft that fits, so a
+ * small flight never takes a widebody just because it is parked there. Otherwise the smallest available aircraft
+ * anywhere is used. This keeps the large aircraft free for the flights that need them.
+ *
+ * Where each aircraft is at a given time is worked out from the flights it has been given in this run:
+ * it is at the arrival airport of the last flight to land before then, or its starting position if there isn't one.
+ * Airports are tracked as their SymbolTable.AIRPORTS ids, so looking for an aircraft at the departure airport
+ * compares an int for each aircraft rather than a string.
+ */
+final class AircraftSelector {
+
+	//how many more seats than the smallest aircraft that fits an aircraft at the departure airport may have and still be preferred,
+	//as a fraction of the smallest one's seats
+	static final double AIRPORT_SEAT_MARGIN = 0.25;
+
+	private final List<Aircraft> bySeats;
+	//the airport id each aircraft in bySeats starts at
+	private final int[] startingPositions;
+	private final Map<Aircraft, TreeMap<Long, Integer>> arrivals = new IdentityHashMap<>();
+
+	/**
+	 * The fleet in order of seats and where each aircraft starts. Nothing in here is changed once it has been
+	 * built, so one Fleet can be shared by any number of selectors, on any number of threads
+	 */
+	static final class Fleet {
+		final List<Aircraft> bySeats;
+		final int[] startingPositions;
+
+		/**
+		 * Indexes the fleet as it is loaded now
+		 * @param aircraftDAO where the aircraft come from. Its seat index is used as it is, without copying,
+		 * unless the DAO doesn't return it in order of seats
+		 */
+		Fleet(IAircraftDAO aircraftDAO) {
+			bySeats = sortedBySeats(aircraftDAO.findAircraftBySeats(0));
+			startingPositions = new int[bySeats.size()];
+			for(int i = 0; i < startingPositions.length; i++) {
+				startingPositions[i] = SymbolTable.AIRPORTS.id(bySeats.get(i).getStartingPosition());
+			}
+		}
+	}
+
+	/**
+	 * Creates a selector over the fleet as it is loaded now
+	 * @param aircraftDAO where the aircraft come from
+	 */
+	AircraftSelector(IAircraftDAO aircraftDAO) {
+		this(new Fleet(aircraftDAO));
+	}
+
+	/**
+	 * Creates a selector over an indexed fleet, with every aircraft at its starting position
+	 * @param fleet the fleet, which may be shared with other selectors
+	 */
+	AircraftSelector(Fleet fleet) {
+		bySeats = fleet.bySeats;
+		startingPositions = fleet.startingPositions;
+	}
+
+	/**
+	 * Chooses an aircraft for a flight
+	 * @param passengers the forecast number of passengers, or a negative number if there is no forecast
+	 * @param departureAirport the airport code the flight leaves from
+	 * @param departs when the flight departs, in minutes (see AvailabilityTimeline.minutes())
+	 * @param available tests whether an aircraft can be given the flight
+	 * @return the smallest available aircraft with enough seats, preferring one at the departure airport if it is
+	 * within the seat margin. If no available aircraft has enough seats, the biggest available one. null if no aircraft is available at all
+	 */
+	Aircraft choose(int passengers, String departureAirport, long departs, Predicate<Aircraft> available) {
+		int from = firstWithSeats(passengers);
+
+		//no aircraft can be at an airport without an id
+		int departure = SymbolTable.AIRPORTS.find(departureAirport);
+		int preferUpTo = from < bySeats.size() ? (int) (bySeats.get(from).getSeats() * (1 + AIRPORT_SEAT_MARGIN)) : 0;
+		Aircraft smallest = null;//the smallest available aircraft that fits, wherever it is
+		for(int i = from; i < bySeats.size(); i++) {
+			Aircraft a = bySeats.get(i);
+			if(a.getSeats() > preferUpTo && smallest != null) {
+				break;//nothing within the margin is at the airport, and the smallest that fits has been found
+			}
+			if(available.test(a)) {
+				//past the margin only the first available aircraft gets here, and it is the smallest that fits
+				if(departure < 0 || a.getSeats() > preferUpTo || locationOf(i, departs) == departure) {
+					return a;
+				}
+				if(smallest == null) {
+					smallest = a;
+				}
+			}
+		}
+		if(smallest != null) {
+			return smallest;
+		}
+		//nothing fits, so fly as many of the passengers as possible
+		for(int i = from - 1; i >= 0; i--) {
+			Aircraft a = bySeats.get(i);
+			if(available.test(a)) {
+				return a;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Records that an aircraft has been given a flight, so it is somewhere else once it lands
+	 * @param a the aircraft
+	 * @param lands when the flight lands, in minutes
+	 * @param arrivalAirport the airport code the flight lands at
+	 */
+	void flew(Aircraft a, long lands, String arrivalAirport) {
+		arrivals.computeIfAbsent(a, k -> new TreeMap<>()).put(lands, SymbolTable.AIRPORTS.id(arrivalAirport));
+	}
+
+	/**
+	 * Works out where the aircraft at a position in bySeats is at a given time
+	 * @param i the position
+	 * @param time the time, in minutes
+	 * @return the airport id of where it landed last before then, or of its starting position
+	 */
+	private int locationOf(int i, long time) {
+		TreeMap<Long, Integer> landed = arrivals.get(bySeats.get(i));
+		if(landed != null) {
+			Map.Entry<Long, Integer> last = landed.floorEntry(time);
+			if(last != null) {
+				return last.getValue();
+			}
+		}
+		return startingPositions[i];
+	}
+
+	/**
+	 * Returns the fleet in order of seats, smallest first
+	 * @param fleet the fleet, which is returned as it is if it is already in order
+	 */
+	private static List<Aircraft> sortedBySeats(List<Aircraft> fleet) {
+		for(int i = 1; i < fleet.size(); i++) {
+			if(fleet.get(i - 1).getSeats() > fleet.get(i).getSeats()) {
+				List<Aircraft> sorted = new ArrayList<>(fleet);
+				sorted.sort(Comparator.comparingInt(Aircraft::getSeats));
+				return sorted;
+			}
+		}
+		return fleet;
+	}
+
+	private int firstWithSeats(int seats) {
+		int low = 0;
+		int high = bySeats.size();
+		while(low < high) {
+			int mid = (low + high) >>> 1;
+			if(bySeats.get(mid).getSeats() < seats) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+}
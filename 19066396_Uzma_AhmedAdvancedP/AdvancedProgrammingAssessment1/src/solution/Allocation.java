@@ -0,0 +1,50 @@
+package solution;
+import java.util.ArrayList;
+import java.util.List;
+
+import baseclasses.Aircraft;
+import baseclasses.CabinCrew;
+import baseclasses.FlightInfo;
+import baseclasses.Pilot;
+
+/**
+ * The aircraft and crew given to one flight during a scheduling run.
+ * Keeping these alongside the Schedule lets a run's decisions be copied into another Schedule,
+ * such as when the day blocks of a parallel run are merged.
+ */
+final class Allocation {
+
+	final FlightInfo flight;
+	final long departs;//minutes, see AvailabilityTimeline.minutes()
+	final long lands;
+	final int passengers;//the forecast, or -1 if there wasn't one
+
+	Aircraft aircraft;
+	Pilot captain;
+	Pilot firstOfficer;
+	final List<CabinCrew> cabinCrew = new ArrayList<>();
+	boolean complete;
+
+	Allocation(FlightInfo flight, int passengers) {
+		this.flight = flight;
+		this.departs = AvailabilityTimeline.departs(flight);
+		this.lands = AvailabilityTimeline.lands(flight);
+		this.passengers = passengers;
+	}
+
+	/**
+	 * Checks whether every role on the flight has been filled
+	 * @return true if there is an aircraft, both pilots and all the cabin crew the aircraft needs
+	 */
+	boolean isFilled() {
+		return aircraft != null && captain != null && firstOfficer != null && cabinCrew.size() >= aircraft.getCabinCrewRequired();
+	}
+
+	/**
+	 * Returns how long the flight is
+	 * @return the flight time in minutes
+	 */
+	long minutes() {
+		return lands - departs;
+	}
+}
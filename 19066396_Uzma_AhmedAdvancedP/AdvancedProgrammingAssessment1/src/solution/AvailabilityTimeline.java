@@ -0,0 +1,76 @@
+package solution;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import baseclasses.FlightInfo;
+
+/**
+ * Keeps track of when each aircraft and crew member is busy during a scheduling run, so the scheduler
+ * can rule out resources that are already booked without asking the Schedule.
+ *
+ * Each resource has its bookings in a sorted map of start minute to end minute. Bookings for a resource never
+ * overlap, so a window is free if the last booking starting before the window ends has finished by the time it starts:
+ * one floor lookup, O(log n) in the resource's bookings. Booking is also O(log n).
+ *
+ * Resources are compared by identity, the same objects the DAOs hand out.
+ */
+final class AvailabilityTimeline {
+
+	private final Map<Object, TreeMap<Long, Long>> bookings = new IdentityHashMap<>();
+
+	/**
+	 * Checks whether a resource has no booking overlapping a window
+	 * @param resource the aircraft or crew member
+	 * @param start the start of the window, in minutes (see minutes())
+	 * @param end the end of the window, in minutes
+	 * @return true if the resource is free for the whole window
+	 */
+	boolean isFree(Object resource, long start, long end) {
+		TreeMap<Long, Long> booked = bookings.get(resource);
+		if(booked == null) {
+			return true;
+		}
+		Map.Entry<Long, Long> before = booked.lowerEntry(end);//the last booking starting before the window ends
+		return before == null || before.getValue() <= start;
+	}
+
+	/**
+	 * Records that a resource is busy for a window
+	 * @param resource the aircraft or crew member
+	 * @param start the start of the window, in minutes
+	 * @param end the end of the window, in minutes
+	 */
+	void book(Object resource, long start, long end) {
+		bookings.computeIfAbsent(resource, k -> new TreeMap<>()).merge(start, end, Math::max);
+	}
+
+	/**
+	 * Converts a date and time into the minute based time line used by the bookings
+	 * @param time the date and time
+	 * @return minutes since 1970-01-01T00:00
+	 */
+	static long minutes(LocalDateTime time) {
+		return time.toEpochSecond(ZoneOffset.UTC) / 60;
+	}
+
+	/**
+	 * Returns when a flight departs on the minute based time line
+	 * @param flight the flight
+	 * @return the departure time in minutes
+	 */
+	static long departs(FlightInfo flight) {
+		return minutes(flight.getDepartureDateTime());
+	}
+
+	/**
+	 * Returns when a flight lands on the minute based time line
+	 * @param flight the flight
+	 * @return the landing time in minutes
+	 */
+	static long lands(FlightInfo flight) {
+		return minutes(flight.getLandingDateTime());
+	}
+}
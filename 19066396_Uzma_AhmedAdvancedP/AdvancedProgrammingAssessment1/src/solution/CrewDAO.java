@@ -3,12 +3,17 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.json.JSONException;
+import org.json.JSONTokener;
 
 import baseclasses.Aircraft;
 import baseclasses.CabinCrew;
@@ -21,93 +26,238 @@ import baseclasses.Pilot;
 /**
  * The CrewDAO is responsible for loading data from JSON-based crew files 
  * It contains various methods to help the scheduler find the right pilots and cabin crew
+ *
+ * It is safe to search from any number of threads while files are being loaded: like AircraftDAO, each load
+ * publishes new Contents with one volatile write, and nothing published is ever changed
  */
 public class CrewDAO implements ICrewDAO {
-	List<CabinCrew> crew = new ArrayList<>();//created individual array lists for pilot and cabin crew
-	List<Pilot> pilots=new ArrayList<>();
+	//everything loaded so far. Loads build new contents and publish them here, so readers never need a lock
+	volatile Contents contents = Contents.EMPTY;
+
 	/**
 	 * Loads the crew data from the specified file, adding them to the currently loaded crew
 	 * Multiple calls to this function, perhaps on different files, would thus be cumulative
 	 * @param p A Path pointing to the file from which data could be loaded
 	 * @throws DataLoadingException if anything goes wrong. The exception's "cause" indicates the underlying exception
+	 *
+	 * The file is read token by token, and each element of the pilots and cabincrew arrays is turned into a
+	 * Pilot or CabinCrew as soon as it has been read, so only one crew member's JSON is held in memory at a time
 	 */
 	@Override
 	public void loadCrewData(Path p) throws DataLoadingException {
-		try {
-			BufferedReader reader= Files.newBufferedReader(p);
-			String json =""; 
-			String line="";
-
-			while((line=reader.readLine()) !=null){ 
-				json =json + line;
+		try (BufferedReader reader = Files.newBufferedReader(p)) {
+			JSONTokener tokens = new JSONTokener(reader);
+
+			//the crew are only added once the whole file has been read, so a bad file doesn't leave half of it loaded
+			List<Pilot> loadedPilots = new ArrayList<>();
+			List<CabinCrew> loadedCabinCrew = new ArrayList<>();
+			boolean pilotsFound = false;
+			boolean cabinCrewFound = false;
+
+			// full team consist of both pilot and cabin crew
+			if(tokens.nextClean() != '{') {
+				throw tokens.syntaxError("A crew file must begin with '{'");
 			}
 
-			JSONObject fullTeam= new JSONObject(json);// full team consist of both pilot and cabin crew
-
+			char next = tokens.nextClean();
+			if(next != '}') {
+				tokens.back();
+				do {
+					if(tokens.nextClean() != '"') {
+						throw tokens.syntaxError("Expected a quoted key");
+					}
+					String key = tokens.nextString('"');
+					if(tokens.nextClean() != ':') {
+						throw tokens.syntaxError("Expected a ':' after the key " + key);
+					}
+
+					if(key.equals("pilots")) {//stream the pilots
+						readArray(tokens, pilotM -> loadedPilots.add(toPilot(pilotM)));
+						pilotsFound = true;
+					} else if(key.equals("cabincrew")) {// stream the cabin crew
+						readArray(tokens, crewM -> loadedCabinCrew.add(toCabinCrew(crewM)));
+						cabinCrewFound = true;
+					} else {
+						tokens.nextValue();//not something we load, skip over it
+					}
+
+					next = tokens.nextClean();
+				} while(next == ',');
+
+				if(next != '}') {
+					throw tokens.syntaxError("Expected a ',' or '}'");
+				}
+			}
 
-			JSONArray ccList= fullTeam.getJSONArray("cabincrew");// get the JSON array of cabin crew
-			JSONArray pilotList = fullTeam.getJSONArray("pilots");//get the pilots
+			//both arrays have to be there, as they were when the file was read with getJSONArray
+			if(!pilotsFound) {
+				throw new JSONException("JSONObject[\"pilots\"] not found.");
+			}
+			if(!cabinCrewFound) {
+				throw new JSONException("JSONObject[\"cabincrew\"] not found.");
+			}
 
+			//the parsing is done without the lock, so several files can be loaded at once
+			add(loadedPilots, loadedCabinCrew);
 
-			//for loop through the pilotList
-			for(int i=0; i<pilotList.length();i++) {
+		}catch(IOException | JSONException | NullPointerException | IllegalArgumentException e) {
 
-				Pilot pi= new Pilot();//created a New object
 
-				JSONObject pilotM =pilotList.getJSONObject(i);//got the JSON object from the Pilot List array
+			throw new DataLoadingException(e);
+		}
 
-				//set the variable
-				pi.setForename(pilotM.getString( "forename"));
-				pi.setHomeBase(pilotM.getString("home_airport"));
-				pi.setSurname(pilotM.getString("surname"));
+	}
 
-				//get the typeRatings array and called it typeR
-				JSONArray typeR = pilotM.getJSONArray("type_ratings");
-				// rank of Pilot stored in a string- pilot only has rank, cabin crew doesnt.
-				String r = pilotM.getString("rank");
+	/**
+	 * Adds pilots and cabin crew to our lists and the indexes, as if they had been loaded from a file
+	 * @param loadedPilots the pilots to add
+	 * @param loadedCabinCrew the cabin crew to add
+	 */
+	synchronized void add(List<Pilot> loadedPilots, List<CabinCrew> loadedCabinCrew) {
+		if(!loadedPilots.isEmpty() || !loadedCabinCrew.isEmpty()) {
+			contents = contents.plus(loadedPilots, loadedCabinCrew);
+		}
+	}
 
-				Pilot.Rank ranks = Pilot.Rank.valueOf(r);// get the value of the Pilot rank
-				pi.setRank(ranks);
+	/**
+	 * Replaces all of the loaded crew with others, publishing them with one write, so searches see either
+	 * the old crew or the new and never an empty DAO in between
+	 * @param pilots the pilots to hold instead
+	 * @param cabinCrew the cabin crew to hold instead
+	 */
+	synchronized void replace(List<Pilot> pilots, List<CabinCrew> cabinCrew) {
+		contents = new Contents(new ArrayList<>(pilots), new ArrayList<>(cabinCrew));
+	}
 
-				for(int j=0;j<typeR.length();j++) {// for loop through all the type rating array
+	/**
+	 * The loaded crew and the indexes over them. Nothing in here is changed once it has been built
+	 */
+	static final class Contents {
+
+		static final Contents EMPTY = new Contents(new ArrayList<>(), new ArrayList<>());
+
+		final List<CabinCrew> crew;//created individual array lists for pilot and cabin crew
+		final List<Pilot> pilots;
+
+		//type rating and home base bitmaps over the crew above, keyed by code id, so the finders don't compare strings for every crew member
+		final TypeRatingIndex<CabinCrew> cabinCrewIndex = new TypeRatingIndex<>();
+		final TypeRatingIndex<Pilot> pilotIndex = new TypeRatingIndex<>();
+
+		//handed out by the getAll methods, made once rather than on every call
+		final List<Pilot> allPilots;
+		final List<CabinCrew> allCabinCrew;
+		final List<Crew> allCrew;
+
+		private Contents(List<Pilot> pilots, List<CabinCrew> crew) {
+			this.pilots = pilots;
+			this.crew = crew;
+			this.allPilots = Collections.unmodifiableList(pilots);
+			this.allCabinCrew = Collections.unmodifiableList(crew);
+			this.allCrew = new AllCrew(pilots, crew);
+			pilotIndex.addAll(pilots);
+			cabinCrewIndex.addAll(crew);
+		}
 
-					pi.setQualifiedFor(typeR.getString(j));
+		/**
+		 * Builds new contents holding this crew followed by more. Loads are rare next to searches, so the
+		 * indexes are simply rebuilt over everyone
+		 * @param loadedPilots the pilots to add
+		 * @param loadedCabinCrew the cabin crew to add
+		 * @return the new contents
+		 */
+		Contents plus(List<Pilot> loadedPilots, List<CabinCrew> loadedCabinCrew) {
+			List<Pilot> allPilots = new ArrayList<>(pilots.size() + loadedPilots.size());
+			allPilots.addAll(pilots);// add to the original array lists
+			allPilots.addAll(loadedPilots);
+			List<CabinCrew> allCabinCrew = new ArrayList<>(crew.size() + loadedCabinCrew.size());
+			allCabinCrew.addAll(crew);
+			allCabinCrew.addAll(loadedCabinCrew);
+			return new Contents(allPilots, allCabinCrew);
+		}
+	}
 
-				}
+	/**
+	 * Reads a JSON array of objects from the tokener one element at a time, handing each to the consumer as soon as it has been read
+	 * @param tokens the tokener, positioned just before the array
+	 * @param element called with each object in the array
+	 * @throws JSONException if the next value isn't an array of objects
+	 */
+	private static void readArray(JSONTokener tokens, Consumer<JSONObject> element) {
+		if(tokens.nextClean() != '[') {
+			throw tokens.syntaxError("Expected a JSON array");
+		}
+		if(tokens.nextClean() == ']') {
+			return;//empty array
+		}
+		tokens.back();
 
-				pilots.add(pi);// add to the original array list.
+		while(true) {
+			Object value = tokens.nextValue();
+			if(!(value instanceof JSONObject)) {
+				throw tokens.syntaxError("Expected a JSON object in the array");
 			}
+			element.accept((JSONObject) value);
 
-			for(int i=0; i<ccList.length();i++) {
-
-				CabinCrew C = new CabinCrew();// CabinCrew object
-				JSONObject crewM =ccList.getJSONObject(i);//get the JSON object from the cabin crew Json array 
+			char next = tokens.nextClean();
+			if(next == ']') {
+				return;
+			}
+			if(next != ',') {
+				throw tokens.syntaxError("Expected a ',' or ']'");
+			}
+		}
+	}
 
-				//set the variables from the JSON file
-				JSONArray trackR = crewM.getJSONArray("type_ratings");
-				C.setForename(crewM.getString( "forename"));
-				C.setHomeBase(crewM.getString("home_airport"));
-				C.setSurname(crewM.getString("surname"));
+	/**
+	 * Creates a Pilot from one element of the pilots array
+	 * @param pilotM the JSON object for the pilot
+	 * @return the new pilot
+	 */
+	private static Pilot toPilot(JSONObject pilotM) {
+		Pilot pi= new Pilot();//created a New object
 
+		//set the variable
+		pi.setForename(pilotM.getString( "forename"));
+		pi.setHomeBase(SymbolTable.AIRPORTS.intern(pilotM.getString("home_airport")));//one shared String for each code
+		pi.setSurname(pilotM.getString("surname"));
 
+		//get the typeRatings array and called it typeR
+		JSONArray typeR = pilotM.getJSONArray("type_ratings");
+		// rank of Pilot stored in a string- pilot only has rank, cabin crew doesnt.
+		String r = pilotM.getString("rank");
 
-				for(int j=0;j<trackR.length();j++) {//for loop through the Json Array of type Ratings in the cabin crew list
-					C.setQualifiedFor(trackR.getString(j));
+		Pilot.Rank ranks = Pilot.Rank.valueOf(r);// get the value of the Pilot rank
+		pi.setRank(ranks);
 
-				}
+		for(int j=0;j<typeR.length();j++) {// for loop through all the type rating array
 
-				crew.add(C);
-			}
+			pi.setQualifiedFor(SymbolTable.TYPES.intern(typeR.getString(j)));
 
+		}
+		return pi;
+	}
 
+	/**
+	 * Creates a CabinCrew from one element of the cabincrew array
+	 * @param crewM the JSON object for the cabin crew member
+	 * @return the new cabin crew member
+	 */
+	private static CabinCrew toCabinCrew(JSONObject crewM) {
+		CabinCrew C = new CabinCrew();// CabinCrew object
 
-		}catch(IOException | JSONException | NullPointerException | IllegalArgumentException e) {
+		//set the variables from the JSON file
+		JSONArray trackR = crewM.getJSONArray("type_ratings");
+		C.setForename(crewM.getString( "forename"));
+		C.setHomeBase(SymbolTable.AIRPORTS.intern(crewM.getString("home_airport")));
+		C.setSurname(crewM.getString("surname"));
 
+		for(int j=0;j<trackR.length();j++) {//for loop through the Json Array of type Ratings in the cabin crew list
+			C.setQualifiedFor(SymbolTable.TYPES.intern(trackR.getString(j)));
 
-			throw new DataLoadingException(e);
 		}
-
+		return C;
 	}
+
 	/**
 	 * Returns a list of all the cabin crew based at the airport with the specified airport code
 	 * @param airportCode the three-letter airport code of the airport to check for
@@ -115,18 +265,7 @@ public class CrewDAO implements ICrewDAO {
 	 */
 	@Override
 	public List<CabinCrew> findCabinCrewByHomeBase(String airportCode) {
-		//create a new array list
-		List<CabinCrew> CCAirportList= new ArrayList<>();
-		//for each of the elements in the cabin crew array list orgininally declared at the top
-		for(CabinCrew crewMember: crew) {
-			if(crewMember.getHomeBase().equals(airportCode)) {//check if the specified airport code equals to the home base of the cabin crew memeber
-				CCAirportList.add(crewMember);// add it
-			}
-		}
-
-		return CCAirportList;
-
-
+		return contents.cabinCrewIndex.atHomeBase(airportCode);
 	}
 
 	/**
@@ -137,15 +276,7 @@ public class CrewDAO implements ICrewDAO {
 	 */
 	@Override
 	public List<CabinCrew> findCabinCrewByHomeBaseAndTypeRating(String typeCode, String airportCode) {
-		List<CabinCrew> CCAirportList= new ArrayList<>();
-
-
-		for(CabinCrew crewMember: crew) {
-			if( crewMember.getTypeRatings().contains(typeCode)&& crewMember.getHomeBase().equals(airportCode)) 
-
-				CCAirportList.add(crewMember);
-		}
-		return CCAirportList;
+		return contents.cabinCrewIndex.withRatingAt(typeCode, airportCode);
 	}
 
 	/**
@@ -155,14 +286,7 @@ public class CrewDAO implements ICrewDAO {
 	 */
 	@Override
 	public List<CabinCrew> findCabinCrewByTypeRating(String typeCode) {
-		List<CabinCrew> CCAirportList= new ArrayList<>();
-
-		for(CabinCrew crewMember: crew) {
-			if(crewMember.getTypeRatings().contains(typeCode)) {
-				CCAirportList.add(crewMember);
-			}
-		}
-		return CCAirportList;
+		return contents.cabinCrewIndex.withRating(typeCode);
 	}
 
 	/**
@@ -172,15 +296,7 @@ public class CrewDAO implements ICrewDAO {
 	 */
 	@Override
 	public List<Pilot> findPilotsByHomeBase(String airportCode) {
-		List<Pilot> pilotAirportList= new ArrayList<>();
-
-
-		for(int i=0;i<pilots.size();i++) {
-			if(pilots.get(i).getHomeBase().equals(airportCode)) //List of all the loaded aircraft with at least this many seats
-
-				pilotAirportList.add(pilots.get(i));
-		}
-		return pilotAirportList;
+		return contents.pilotIndex.atHomeBase(airportCode);
 	}
 
 	/**
@@ -191,15 +307,7 @@ public class CrewDAO implements ICrewDAO {
 	 */
 	@Override
 	public List<Pilot> findPilotsByHomeBaseAndTypeRating(String typeCode, String airportCode) {
-		List<Pilot> pilotAirportList= new ArrayList<>();
-
-
-		for(Pilot p: pilots) {
-			if( p.getTypeRatings().contains(typeCode) && p.getHomeBase().equals(airportCode)) // 2 conditions to be met 
-
-				pilotAirportList.add(p);
-		}
-		return pilotAirportList;
+		return contents.pilotIndex.withRatingAt(typeCode, airportCode);
 	}
 
 	/**
@@ -209,68 +317,70 @@ public class CrewDAO implements ICrewDAO {
 	 */
 	@Override
 	public List<Pilot> findPilotsByTypeRating(String typeCode) {
-		List<Pilot> pilotAirportList= new ArrayList<>();
-
-		for(int i=0;i<pilots.size();i++) {
-			if(pilots.get(i).getTypeRatings().contains(typeCode)) {// get the pilots type rating and check against the type code inputted
-				pilotAirportList.add(pilots.get(i));
-			}
-		}
-		return pilotAirportList;
-
+		return contents.pilotIndex.withRating(typeCode);
 	}
 
 	/**
 	 * Returns a list of all the cabin crew currently loaded
-	 * @return a list of all the cabin crew currently loaded
+	 * @return a read-only view of all the cabin crew currently loaded. Nothing is copied, and the view never changes:
+	 * crew loaded afterwards are only in the lists returned by later calls
 	 */
 	@Override
 	public List<CabinCrew> getAllCabinCrew() {
-
-		List<CabinCrew> loadCabin = new ArrayList<>();
-		for (CabinCrew c : crew) {
-			loadCabin.add(c);
-		}
-		return loadCabin;
+		return contents.allCabinCrew;
 	}
 
 	/**
 	 * Returns a list of all the crew, regardless of type
-	 * @return a list of all the crew, regardless of type
+	 * @return a read-only view of all the pilots followed by all the cabin crew, from the same load. Nothing is copied,
+	 * and the view never changes: crew loaded afterwards are only in the lists returned by later calls
 	 */
 	@Override
 	public List<Crew> getAllCrew() {
-		List<Crew> crewList= new ArrayList<Crew>();
-
-		for(int i=0;i<pilots.size();i++) {// for loop through the pilots Array. add to the crewList. 
-			crewList.add(pilots.get(i));
-		}
-
-		for(int k=0;k<crew.size();k++) {//for loop through the Crew size array seperately and add to the combined crewList array.
-			crewList.add(crew.get(k));
-
-		}
-		// add both pilot and cabin crew to the new array list and return it
-		return crewList;
+		return contents.allCrew;
 	}
 
 	/**
 	 * Returns a list of all the pilots currently loaded
-	 * @return a list of all the pilots currently loaded
+	 * @return a read-only view of all the pilots currently loaded. Nothing is copied, and the view never changes:
+	 * pilots loaded afterwards are only in the lists returned by later calls
 	 */
 	@Override
 	public List<Pilot> getAllPilots() {
-		List<Pilot> loadedPilots = new ArrayList<>();
-		for (Pilot p : pilots) {
-			loadedPilots.add(p);
+		return contents.allPilots;
+	}
+
+	/**
+	 * The pilots followed by the cabin crew as one read-only list, without copying either
+	 */
+	private static final class AllCrew extends AbstractList<Crew> implements RandomAccess {
+
+		private final List<Pilot> pilots;
+		private final List<CabinCrew> cabinCrew;
+
+		AllCrew(List<Pilot> pilots, List<CabinCrew> cabinCrew) {
+			this.pilots = pilots;
+			this.cabinCrew = cabinCrew;
 		}
-		return loadedPilots;
 
+		@Override
+		public Crew get(int index) {
+			int pilotCount = pilots.size();
+			if(index < pilotCount) {
+				return pilots.get(index);//throws for a negative index
+			}
+			return cabinCrew.get(index - pilotCount);
+		}
+
+		@Override
+		public int size() {
+			return pilots.size() + cabinCrew.size();
+		}
 	}
 
 	@Override
 	public int getNumberOfCabinCrew() {
-		return crew.size();
+		return contents.crew.size();
 	}
 
 	/**
@@ -279,17 +389,15 @@ public class CrewDAO implements ICrewDAO {
 	 */
 	@Override
 	public int getNumberOfPilots() {
-		return pilots.size();
+		return contents.pilots.size();
 	}
 
 	/**
 	 * Unloads all of the crew currently loaded, ready to start again if needed
 	 */
 	@Override
-	public void reset() {
-		pilots.clear();//clear both of the pilot array list and the cabin crew
-		crew.clear();
-
+	public synchronized void reset() {
+		contents = Contents.EMPTY;//clear both of the pilot array list and the cabin crew
 	}
 
 }
@@ -0,0 +1,188 @@
+package solution;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Hands out crew members fairly during a scheduling run: the member who has flown the fewest minutes so far
+ * and is available comes first. Members with the same minutes are ordered by a tie break mixed from the seed and
+ * their position, different for every member, so the same seed always gives the same rotation without a shuffled
+ * order having to be drawn up front for all the crew.
+ *
+ * Members are known by their position in the crew's TypeRatingIndex, so the availability test can go straight to
+ * the index's bitmaps. There is a binary heap for each type rating, built from the index's bitmap for the type the
+ * first time a flight needs it, so picking crew for an aircraft only ever looks at crew rated for it. A heap is
+ * ordered by (minutes flown, tie break) as they were when the member was put in it. Minutes only go up, so when a
+ * member turns out to have flown since, they are put back with their new minutes and the next one is tried. Giving a
+ * member a flight is then O(1) however many ratings they hold, and members that are busy cost O(log n) each.
+ */
+final class CrewRotation {
+
+	private final TypeRatingIndex<?> crew;
+	private final long seed;
+	private final long[] minutesFlown;
+	private final List<Heap> byType = new ArrayList<>();//indexed by type id, built as they are needed
+
+	/**
+	 * Creates a rotation with nobody having flown yet
+	 * @param crew the crew members to rotate through, by their positions in the index
+	 * @param seed where the tie break order comes from
+	 */
+	CrewRotation(TypeRatingIndex<?> crew, long seed) {
+		this.crew = crew;
+		this.seed = seed;
+		minutesFlown = new long[crew.size()];
+	}
+
+	/**
+	 * Picks the least used crew members rated for a type who are available. They stay in the rotation, so they
+	 * should be booked before asking for more for the same flight
+	 * @param typeId the encoded type, from the index's typeId()
+	 * @param available tests whether the member at a position can be used
+	 * @param count how many members are wanted
+	 * @param into where the positions of the members found are written, least used first
+	 * @return how many were found, at most count
+	 */
+	int next(int typeId, IntPredicate available, int count, int[] into) {
+		Heap heap = SymbolTable.getOrCreate(byType, typeId, () -> new Heap(crew.rated(typeId)));
+		return heap.next(available, count, into);
+	}
+
+	/**
+	 * Records that a crew member has been given a flight, moving them back in the rotation
+	 * @param member the crew member's position
+	 * @param minutes how long the flight is
+	 */
+	void flew(int member, long minutes) {
+		minutesFlown[member] += minutes;
+	}
+
+	/**
+	 * Returns how many minutes a crew member has flown in this rotation
+	 * @param member the crew member's position
+	 * @return the minutes flown
+	 */
+	long getMinutesFlown(int member) {
+		return minutesFlown[member];
+	}
+
+	/**
+	 * Decides the order among members who have flown the same amount. Spreading the positions by an odd constant
+	 * and mixing them with the SplitMix64 finaliser are both one to one, so no two members ever tie
+	 * @param member the crew member's position
+	 * @return the member's tie break, lower goes first
+	 */
+	private long tieBreak(int member) {
+		long z = seed + member * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * The crew rated for one type, least used first
+	 */
+	private final class Heap {
+		//each entry is a member, their minutes flown when they were put in and their tie break
+		private final int[] members;
+		private final long[] minutes;
+		private final long[] ties;
+		private final int[] popped;
+		private int size;
+
+		Heap(BitSet rated) {
+			int n = rated.cardinality();
+			members = new int[n];
+			minutes = new long[n];
+			ties = new long[n];
+			popped = new int[n];
+			for(int i = rated.nextSetBit(0); i >= 0; i = rated.nextSetBit(i + 1)) {
+				members[size] = i;
+				minutes[size] = minutesFlown[i];
+				ties[size++] = tieBreak(i);
+			}
+			for(int i = size / 2 - 1; i >= 0; i--) {
+				siftDown(i, members[i], minutes[i], ties[i]);
+			}
+		}
+
+		int next(IntPredicate available, int count, int[] into) {
+			int looked = 0;
+			int found = 0;
+			while(found < count && size > 0) {
+				int member = members[0];
+				long tie = ties[0];
+				boolean stale = minutes[0] != minutesFlown[member];
+				pop();
+				if(stale) {
+					push(member, tie);//has flown since, so goes back further down
+					continue;
+				}
+				popped[looked++] = member;
+				if(available.test(member)) {
+					into[found++] = member;
+				}
+			}
+
+			for(int i = 0; i < looked; i++) {//put back everyone looked at, including the ones found
+				push(popped[i], tieBreak(popped[i]));
+			}
+			return found;
+		}
+
+		private boolean before(long aMinutes, long aTie, long bMinutes, long bTie) {
+			if(aMinutes != bMinutes) {
+				return aMinutes < bMinutes;
+			}
+			return aTie < bTie;
+		}
+
+		private void push(int member, long tie) {
+			siftUp(size++, member, minutesFlown[member], tie);
+		}
+
+		private void pop() {
+			size--;
+			if(size > 0) {
+				siftDown(0, members[size], minutes[size], ties[size]);
+			}
+		}
+
+		private void siftUp(int i, int member, long memberMinutes, long tie) {
+			while(i > 0) {
+				int parent = (i - 1) >>> 1;
+				if(!before(memberMinutes, tie, minutes[parent], ties[parent])) {
+					break;
+				}
+				set(i, members[parent], minutes[parent], ties[parent]);
+				i = parent;
+			}
+			set(i, member, memberMinutes, tie);
+		}
+
+		private void siftDown(int i, int member, long memberMinutes, long tie) {
+			while(true) {
+				int child = 2 * i + 1;
+				if(child >= size) {
+					break;
+				}
+				if(child + 1 < size && before(minutes[child + 1], ties[child + 1], minutes[child], ties[child])) {
+					child++;
+				}
+				if(!before(minutes[child], ties[child], memberMinutes, tie)) {
+					break;
+				}
+				set(i, members[child], minutes[child], ties[child]);
+				i = child;
+			}
+			set(i, member, memberMinutes, tie);
+		}
+
+		private void set(int i, int member, long memberMinutes, long tie) {
+			members[i] = member;
+			minutes[i] = memberMinutes;
+			ties[i] = tie;
+		}
+	}
+}
@@ -0,0 +1,232 @@
+package solution;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A small streaming reader for comma separated files. The file is read through a FileChannel into a
+ * reusable buffer and each row is tokenised in place by recording where its fields start and end,
+ * so no regex, split or per line String is involved. Fields are only turned into objects when asked for,
+ * and numbers are parsed straight from the bytes.
+ *
+ * Quoted fields are not supported, the same as the split(",") based loading this replaces.
+ */
+final class CsvReader implements Closeable {
+
+	private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	private final FileChannel channel;
+	private byte[] buffer;
+	private ByteBuffer wrapper;
+
+	private int position;//start of the next unread row
+	private int limit;//end of the valid bytes in the buffer
+	private boolean endOfFile;
+
+	//start and end offsets (in buffer) of each field of the current row
+	private int[] fieldStarts = new int[16];
+	private int[] fieldEnds = new int[16];
+	private int fieldCount;
+	private long rowNumber;
+
+	/**
+	 * Opens a CSV file for reading
+	 * @param p the file to read
+	 * @throws IOException if the file cannot be opened
+	 */
+	CsvReader(Path p) throws IOException {
+		this(p, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Opens a CSV file for reading with a specific starting buffer size. The buffer grows if a single row doesn't fit
+	 * @param p the file to read
+	 * @param bufferSize the initial size of the read buffer in bytes
+	 * @throws IOException if the file cannot be opened
+	 */
+	CsvReader(Path p, int bufferSize) throws IOException {
+		channel = FileChannel.open(p, StandardOpenOption.READ);
+		buffer = new byte[bufferSize];
+		wrapper = ByteBuffer.wrap(buffer);
+	}
+
+	/**
+	 * Moves on to the next non-empty row of the file
+	 * @return true if there was another row, false at the end of the file
+	 * @throws IOException if the file could not be read
+	 */
+	boolean nextRow() throws IOException {
+		int scan = position;
+		while(true) {
+			int newline = -1;
+			for(int i = scan; i < limit; i++) {
+				if(buffer[i] == '\n') {
+					newline = i;
+					break;
+				}
+			}
+
+			if(newline >= 0) {
+				int start = position;
+				position = newline + 1;
+				if(tokenise(start, newline)) {
+					return true;
+				}
+				scan = position;//blank line, keep going
+			} else if(endOfFile) {
+				if(position >= limit) {
+					return false;
+				}
+				int start = position;
+				position = limit;
+				if(tokenise(start, limit)) {
+					return true;
+				}
+			} else {
+				//the row carries on past the end of the buffer, so move it to the front and read some more
+				int scanned = scan - position;
+				fill();
+				scan = scanned;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of fields in the current row
+	 * @return the number of fields in the current row
+	 */
+	int getFieldCount() {
+		return fieldCount;
+	}
+
+	/**
+	 * Returns the row number of the current row, counting from 1 and including blank lines
+	 * @return the row number of the current row
+	 */
+	long getRowNumber() {
+		return rowNumber;
+	}
+
+	/**
+	 * Returns a field of the current row as a String
+	 * @param field the index of the field, starting at 0
+	 * @return the field's text
+	 * @throws IllegalArgumentException if the row doesn't have that many fields
+	 */
+	String getString(int field) {
+		check(field);
+		return new String(buffer, fieldStarts[field], fieldEnds[field] - fieldStarts[field], StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Parses a field of the current row as an int, without creating a String first
+	 * @param field the index of the field, starting at 0
+	 * @return the field's value
+	 * @throws NumberFormatException if the field isn't a valid int
+	 * @throws IllegalArgumentException if the row doesn't have that many fields
+	 */
+	int getInt(int field) {
+		check(field);
+		int i = fieldStarts[field];
+		int end = fieldEnds[field];
+		if(i == end) {
+			throw new NumberFormatException("Empty field " + field + " on row " + rowNumber);
+		}
+
+		boolean negative = buffer[i] == '-';
+		if(negative || buffer[i] == '+') {
+			i++;
+			if(i == end) {
+				throw numberFormat(field);
+			}
+		}
+
+		long max = negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+		long result = 0;
+		for(; i < end; i++) {
+			int digit = buffer[i] - '0';
+			if(digit < 0 || digit > 9) {
+				throw numberFormat(field);
+			}
+			result = result * 10 + digit;
+			if(result > max) {//out of range for an int
+				throw numberFormat(field);
+			}
+		}
+		return (int) (negative ? -result : result);
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private NumberFormatException numberFormat(int field) {
+		return new NumberFormatException("For input string: \"" + getString(field) + "\" on row " + rowNumber);
+	}
+
+	private void check(int field) {
+		if(field < 0 || field >= fieldCount) {
+			throw new IllegalArgumentException("Row " + rowNumber + " has " + fieldCount + " fields, field " + field + " was requested");
+		}
+	}
+
+	/**
+	 * Records the field boundaries of the row between start and end
+	 * @return false if the row was blank
+	 */
+	private boolean tokenise(int start, int end) {
+		rowNumber++;
+		if(end > start && buffer[end - 1] == '\r') {
+			end--;
+		}
+		if(end == start) {
+			return false;
+		}
+
+		fieldCount = 0;
+		int fieldStart = start;
+		for(int i = start; i <= end; i++) {
+			if(i == end || buffer[i] == ',') {
+				if(fieldCount == fieldStarts.length) {
+					fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+					fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+				}
+				fieldStarts[fieldCount] = fieldStart;
+				fieldEnds[fieldCount] = i;
+				fieldCount++;
+				fieldStart = i + 1;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Moves any partly read row to the front of the buffer, then reads more of the file after it
+	 */
+	private void fill() throws IOException {
+		int remaining = limit - position;
+		System.arraycopy(buffer, position, buffer, 0, remaining);
+		position = 0;
+		limit = remaining;
+
+		if(limit == buffer.length) {//a single row is bigger than the buffer
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+			wrapper = ByteBuffer.wrap(buffer);
+		}
+
+		wrapper.limit(buffer.length);
+		wrapper.position(limit);
+		int read = channel.read(wrapper);
+		if(read < 0) {
+			endOfFile = true;
+		} else {
+			limit += read;
+		}
+	}
+}
@@ -0,0 +1,316 @@
+package solution;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import baseclasses.DataLoadingException;
+import baseclasses.IAircraftDAO;
+import baseclasses.ICrewDAO;
+import baseclasses.IPassengerNumbersDAO;
+import baseclasses.IRouteDAO;
+
+/**
+ * Loads any number of data files into their DAOs at the same time, and times each one.
+ *
+ * The four kinds of data share nothing, and the DAOs parse each file without holding their lock, so every file
+ * added is loaded on its own thread, including several files of the same kind going into the same DAO.
+ * If any files fail to load, the others are still loaded and every failure is reported together.
+ *
+ * Files going into the same DAO are still added to it in the order they were added here, so the same files always
+ * give the same DAO: which of two aircraft with one tail code is found, say, or the order of aircraft with equal
+ * seats. Several files for one of this package's DAOs are each parsed into a DAO of their own at the same time, and
+ * what they hold is added to the real DAO in order once they are all done. Several files for any other DAO are loaded
+ * one after another. Files added with add(String, Path, Source) are taken to go into a DAO no other file goes into.
+ *
+ * The loads are I/O bound, so they run on a pool of their own rather than the common fork-join pool.
+ */
+public class DataLoader {
+
+	/**
+	 * Something that loads one file into a DAO, such as aircraftDAO::loadAircraftData
+	 */
+	@FunctionalInterface
+	public interface Source {
+		/**
+		 * Loads the file
+		 * @param p the file
+		 * @throws DataLoadingException if anything goes wrong
+		 */
+		void load(Path p) throws DataLoadingException;
+	}
+
+	private final int threads;
+	private final List<Timing> files = new ArrayList<>();
+
+	/**
+	 * Creates a loader that loads up to 8 files at once
+	 */
+	public DataLoader() {
+		this(8);
+	}
+
+	/**
+	 * Creates a loader
+	 * @param threads the most files to load at once
+	 */
+	public DataLoader(int threads) {
+		if(threads < 1) {
+			throw new IllegalArgumentException("At least one thread is needed, not " + threads);
+		}
+		this.threads = threads;
+	}
+
+	/**
+	 * Adds a file to be loaded by loadAll()
+	 * @param name what the file holds, for the timings and errors, e.g. "aircraft"
+	 * @param file the file
+	 * @param source what loads it
+	 */
+	public void add(String name, Path file, Source source) {
+		files.add(new Timing(name, file, source, null, null));
+	}
+
+	/**
+	 * Adds aircraft files to be loaded by loadAll()
+	 * @param dao the DAO to load them into
+	 * @param p the files
+	 */
+	public void addAircraftData(IAircraftDAO dao, Path... p) {
+		for(Path file : p) {
+			files.add(new Timing("aircraft", file, dao::loadAircraftData, dao, dao instanceof AircraftDAO ? () -> {
+				AircraftDAO staged = new AircraftDAO();
+				return new Staging(staged::loadAircraftData, () -> ((AircraftDAO) dao).add(staged.getAllAircraft()));
+			} : null));
+		}
+	}
+
+	/**
+	 * Adds crew files to be loaded by loadAll()
+	 * @param dao the DAO to load them into
+	 * @param p the files
+	 */
+	public void addCrewData(ICrewDAO dao, Path... p) {
+		for(Path file : p) {
+			files.add(new Timing("crew", file, dao::loadCrewData, dao, dao instanceof CrewDAO ? () -> {
+				CrewDAO staged = new CrewDAO();
+				return new Staging(staged::loadCrewData, () -> ((CrewDAO) dao).add(staged.getAllPilots(), staged.getAllCabinCrew()));
+			} : null));
+		}
+	}
+
+	/**
+	 * Adds route files to be loaded by loadAll()
+	 * @param dao the DAO to load them into
+	 * @param p the files
+	 */
+	public void addRouteData(IRouteDAO dao, Path... p) {
+		for(Path file : p) {
+			files.add(new Timing("routes", file, dao::loadRouteData, dao, dao instanceof RouteDAO ? () -> {
+				RouteDAO staged = new RouteDAO();
+				return new Staging(staged::loadRouteData, () -> ((RouteDAO) dao).add(staged.getAllRoutes()));
+			} : null));
+		}
+	}
+
+	/**
+	 * Adds passenger number databases to be loaded by loadAll()
+	 * @param dao the DAO to load them into
+	 * @param p the databases
+	 */
+	public void addPassengerNumbersData(IPassengerNumbersDAO dao, Path... p) {
+		for(Path file : p) {
+			files.add(new Timing("passenger numbers", file, dao::loadPassengerNumbersData, dao, dao instanceof PassengerNumbersDAO ? () -> {
+				PassengerNumbersDAO staged = new PassengerNumbersDAO();
+				return new Staging(staged::loadPassengerNumbersData, () -> ((PassengerNumbersDAO) dao).add(staged.passengerNumbers));
+			} : null));
+		}
+	}
+
+	/**
+	 * Loads every file added so far, all at once, and waits for them all to finish
+	 * @return how long each file took, in the order they were added
+	 * @throws DataLoadingException if any file failed to load. Its cause is the first failure, in the order the files
+	 * were added, and every other failure is attached to it as a suppressed exception. The files that didn't fail
+	 * are still loaded, and getTimings() shows which file each failure came from
+	 */
+	public List<Timing> loadAll() throws DataLoadingException {
+		if(files.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		//the files for each DAO, in the order they were added
+		List<List<Timing>> byDAO = new ArrayList<>();
+		Map<Object, List<Timing>> lists = new IdentityHashMap<>();
+		for(Timing file : files) {
+			List<Timing> list = file.dao == null ? null : lists.get(file.dao);
+			if(list == null) {
+				list = new ArrayList<>();
+				byDAO.add(list);
+				if(file.dao != null) {
+					lists.put(file.dao, list);
+				}
+			}
+			list.add(file);
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, files.size()));
+		try {
+			List<CompletableFuture<Void>> loads = new ArrayList<>();
+			for(List<Timing> list : byDAO) {
+				for(Timing file : list) {
+					file.staging = list.size() > 1 && file.stager != null ? file.stager.get() : null;
+				}
+				if(list.size() == 1 || list.get(0).staging != null) {
+					for(Timing file : list) {
+						loads.add(CompletableFuture.runAsync(file::load, pool));
+					}
+				} else {
+					loads.add(CompletableFuture.runAsync(() -> list.forEach(Timing::load), pool));
+				}
+			}
+			//the loads catch their own failures, so this only returns once every file has been tried
+			CompletableFuture.allOf(loads.toArray(new CompletableFuture<?>[0])).join();
+		}
+		finally {
+			pool.shutdown();
+		}
+		//what was parsed into DAOs of its own goes into the real ones in the order the files were added
+		for(Timing file : files) {
+			file.publish();
+		}
+
+		DataLoadingException failed = null;
+		for(Timing file : files) {
+			if(file.failure == null) {
+				continue;
+			}
+			if(failed == null) {
+				failed = new DataLoadingException(file.failure);
+			} else {
+				failed.addSuppressed(file.failure);
+			}
+		}
+		if(failed != null) {
+			throw failed;
+		}
+		return getTimings();
+	}
+
+	/**
+	 * Returns every file added, and how loading it went the last time loadAll() was called
+	 * @return the files, in the order they were added
+	 */
+	public List<Timing> getTimings() {
+		return Collections.unmodifiableList(new ArrayList<>(files));
+	}
+
+	/**
+	 * A file being parsed into a DAO of its own, and how to add what it held to the real DAO afterwards
+	 */
+	private static final class Staging {
+		final Source source;
+		final Runnable publish;
+
+		Staging(Source source, Runnable publish) {
+			this.source = source;
+			this.publish = publish;
+		}
+	}
+
+	/**
+	 * One file and how loading it went
+	 */
+	public static class Timing {
+
+		private final String name;
+		private final Path file;
+		private final Source source;
+		private final Object dao;//what the file is loaded into, or null if it is only known to the source
+		private final Supplier<Staging> stager;//null if the file can only be loaded straight into the DAO
+		private Staging staging;//set by loadAll() when the file is parsed apart from the DAO
+		private volatile long nanos;
+		private volatile Exception failure;
+
+		Timing(String name, Path file, Source source, Object dao, Supplier<Staging> stager) {
+			this.name = name;
+			this.file = file;
+			this.source = source;
+			this.dao = dao;
+			this.stager = stager;
+		}
+
+		private void load() {
+			long start = System.nanoTime();
+			failure = null;
+			try {
+				(staging == null ? source : staging.source).load(file);
+			}
+			catch(DataLoadingException | RuntimeException e) {
+				failure = e;
+			}
+			nanos = System.nanoTime() - start;
+		}
+
+		//adds a staged file to the DAO, including whatever was read before a failure, as loading straight into it would
+		private void publish() {
+			if(staging == null) {
+				return;
+			}
+			long start = System.nanoTime();
+			try {
+				staging.publish.run();
+			}
+			catch(RuntimeException e) {
+				if(failure == null) {
+					failure = e;
+				}
+			}
+			staging = null;
+			nanos += System.nanoTime() - start;
+		}
+
+		/**
+		 * Returns what the file holds
+		 * @return the name it was added with
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Returns the file
+		 * @return the file
+		 */
+		public Path getFile() {
+			return file;
+		}
+
+		/**
+		 * Returns how long the file took to load
+		 * @return the time in nanoseconds
+		 */
+		public long getNanos() {
+			return nanos;
+		}
+
+		/**
+		 * Returns why the file failed to load
+		 * @return the exception, or null if it loaded
+		 */
+		public Exception getFailure() {
+			return failure;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s from %s in %.1f ms", name, file, nanos / 1e6) + (failure == null ? "" : ", failed: " + failure);
+		}
+	}
+}
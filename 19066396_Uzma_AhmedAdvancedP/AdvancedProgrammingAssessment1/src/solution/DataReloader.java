@@ -0,0 +1,276 @@
+package solution;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import baseclasses.DataLoadingException;
+
+/**
+ * Watches the four data files and reloads whichever of them changes, without readers ever seeing a half loaded DAO.
+ *
+ * A changed file is loaded into a brand new DAO on the watching thread. Only once it has loaded completely is it
+ * swapped into a new DataSet, with the other three DAOs carried over, and the DataSet published with a single
+ * atomic reference write. get() is just a read of that reference, so readers never wait for a reload, and a
+ * scheduling run that called get() once keeps the data it started with. If a file fails to load, the data set
+ * in use is kept and the failure is available from getLastFailure().
+ *
+ * Editors and copies often change a file in several steps, so a reload waits until the watched files have
+ * been quiet for a short while.
+ */
+public class DataReloader implements Supplier<DataSet>, Closeable {
+
+	//how long the files have to go unchanged before they are reloaded
+	private static final long QUIET_MILLIS = 250;
+
+	private enum Source {
+		AIRCRAFT, CREW, ROUTES, PASSENGER_NUMBERS
+	}
+
+	private final Path aircraftFile;
+	private final Path crewFile;
+	private final Path routesFile;
+	private final Path passengersFile;
+
+	private final AtomicReference<DataSet> current;
+	private final AtomicLong reloads = new AtomicLong();
+	//held while a file is loaded and published, so reloads happen one at a time
+	private final Object reloadLock = new Object();
+	private volatile Exception lastFailure;
+
+	private volatile LocalDate passengersFrom;
+	private volatile LocalDate passengersTo;
+
+	private WatchService watcher;
+	private Thread thread;
+
+	/**
+	 * Creates a reloader. Nothing is watched until start() is called
+	 * @param initial the data already loaded from the files
+	 * @param aircraftFile the aircraft CSV file
+	 * @param crewFile the crew JSON file
+	 * @param routesFile the routes XML file
+	 * @param passengersFile the passenger numbers SQLite database
+	 */
+	public DataReloader(DataSet initial, Path aircraftFile, Path crewFile, Path routesFile, Path passengersFile) {
+		this.current = new AtomicReference<>(initial);
+		this.aircraftFile = aircraftFile.toAbsolutePath().normalize();
+		this.crewFile = crewFile.toAbsolutePath().normalize();
+		this.routesFile = routesFile.toAbsolutePath().normalize();
+		this.passengersFile = passengersFile.toAbsolutePath().normalize();
+	}
+
+	/**
+	 * Only reloads the passenger numbers for dates inside a window, as loadPassengerNumbersData(Path, LocalDate, LocalDate) does
+	 * @param from the first date to load, inclusive, or null to load every date
+	 * @param to the last date to load, inclusive
+	 */
+	public void setPassengerDates(LocalDate from, LocalDate to) {
+		passengersFrom = from;
+		passengersTo = to;
+	}
+
+	/**
+	 * Returns the data set in use
+	 * @return the most recently published data set
+	 */
+	@Override
+	public DataSet get() {
+		return current.get();
+	}
+
+	/**
+	 * Returns the number of reloads that have been published
+	 * @return the number of reloads
+	 */
+	public long getReloads() {
+		return reloads.get();
+	}
+
+	/**
+	 * Returns why the most recent reload that failed did so
+	 * @return the exception, or null if no reload has failed
+	 */
+	public Exception getLastFailure() {
+		return lastFailure;
+	}
+
+	/**
+	 * Starts watching the files on a background thread
+	 * @throws IOException if the directories holding the files can't be watched
+	 * @throws IllegalStateException if it has already been started
+	 */
+	public synchronized void start() throws IOException {
+		if(watcher != null) {
+			throw new IllegalStateException("The reloader has already been started");
+		}
+		WatchService created = FileSystems.getDefault().newWatchService();
+		try {
+			Set<Path> directories = new LinkedHashSet<>();
+			for(Source source : Source.values()) {
+				directories.add(file(source).getParent());
+			}
+			for(Path directory : directories) {
+				//files are often replaced by moving a new one over them rather than being written in place
+				directory.register(created, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+			}
+		}
+		catch(IOException e) {
+			created.close();
+			throw e;
+		}
+
+		watcher = created;
+		thread = new Thread(() -> watch(created), "data-reloader");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops watching the files. A reload already under way is finished and published
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if(watcher != null) {
+			watcher.close();
+			watcher = null;
+			thread = null;
+		}
+	}
+
+	/**
+	 * Reloads one of the files now, whether it has changed or not, and publishes it if it loads.
+	 * Waits for any reload already under way to finish first
+	 * @param file the file, which must be one of the four given to the constructor
+	 * @return the data set published
+	 * @throws DataLoadingException if the file fails to load, in which case the data set in use is kept
+	 */
+	public DataSet reload(Path file) throws DataLoadingException {
+		Source source = sourceOf(file.toAbsolutePath().normalize());
+		if(source == null) {
+			throw new IllegalArgumentException(file + " isn't one of the files being reloaded");
+		}
+		return reload(source);
+	}
+
+	/**
+	 * Waits for changes and reloads the changed files, until the watch service is closed
+	 */
+	private void watch(WatchService watcher) {
+		try {
+			while(true) {
+				Set<Source> changed = EnumSet.noneOf(Source.class);
+				WatchKey key = watcher.take();
+				//keep collecting changes until the files have been quiet for a while
+				while(key != null) {
+					for(WatchEvent<?> event : key.pollEvents()) {
+						if(event.context() instanceof Path) {
+							Source source = sourceOf(((Path) key.watchable()).resolve((Path) event.context()).normalize());
+							if(source != null) {
+								changed.add(source);
+							}
+						}
+					}
+					key.reset();
+					key = watcher.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS);
+				}
+
+				for(Source source : changed) {
+					try {
+						reload(source);
+					}
+					catch(DataLoadingException e) {
+						//keep going with the data in use, the next change to the file will try again
+						System.err.println("Couldn't reload " + file(source) + ": " + e.getCause());
+					}
+				}
+			}
+		}
+		catch(InterruptedException | ClosedWatchServiceException e) {
+			//stopped
+		}
+	}
+
+	/**
+	 * Loads a file into a new DAO and publishes a data set with it in place of the old one.
+	 * Reloads are made one at a time, whether from the watching thread or reload(Path), so two loads of the same
+	 * file can't finish out of order and leave the older contents published
+	 */
+	private DataSet reload(Source source) throws DataLoadingException {
+		Path p = file(source);
+		synchronized(reloadLock) {
+			try {
+				DataSet published;
+				switch(source) {
+				case AIRCRAFT:
+					AircraftDAO aircraft = new AircraftDAO();
+					aircraft.loadAircraftData(p);
+					published = current.updateAndGet(d -> d.withAircraft(aircraft));
+					break;
+				case CREW:
+					CrewDAO crew = new CrewDAO();
+					crew.loadCrewData(p);
+					published = current.updateAndGet(d -> d.withCrew(crew));
+					break;
+				case ROUTES:
+					RouteDAO routes = new RouteDAO();
+					routes.loadRouteData(p);
+					published = current.updateAndGet(d -> d.withRoutes(routes));
+					break;
+				default:
+					PassengerNumbersDAO passengers = new PassengerNumbersDAO();
+					LocalDate from = passengersFrom;
+					LocalDate to = passengersTo;
+					if(from == null) {
+						passengers.loadPassengerNumbersData(p);
+					} else {
+						passengers.loadPassengerNumbersData(p, from, to);
+					}
+					published = current.updateAndGet(d -> d.withPassengerNumbers(passengers));
+					break;
+				}
+				reloads.incrementAndGet();
+				return published;
+			}
+			catch(DataLoadingException e) {
+				lastFailure = e;
+				throw e;
+			}
+		}
+	}
+
+	private Path file(Source source) {
+		switch(source) {
+		case AIRCRAFT:
+			return aircraftFile;
+		case CREW:
+			return crewFile;
+		case ROUTES:
+			return routesFile;
+		default:
+			return passengersFile;
+		}
+	}
+
+	private Source sourceOf(Path file) {
+		for(Source source : Source.values()) {
+			if(file(source).equals(file)) {
+				return source;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,119 @@
+package solution;
+import baseclasses.IAircraftDAO;
+import baseclasses.ICrewDAO;
+import baseclasses.IPassengerNumbersDAO;
+import baseclasses.IRouteDAO;
+
+/**
+ * The four loaded DAOs a schedule is made from, taken together.
+ *
+ * A DataSet never changes: replacing one of the DAOs gives a new DataSet, and the DAOs in it must not be loaded
+ * into or reset once it has been published. A scheduling run that takes a DataSet at the start can use it to the end,
+ * whatever is reloaded in the meantime, without taking any locks.
+ */
+public final class DataSet {
+
+	private final IAircraftDAO aircraftDAO;
+	private final ICrewDAO crewDAO;
+	private final IRouteDAO routeDAO;
+	private final IPassengerNumbersDAO passengerNumbersDAO;
+	private final long version;
+
+	/**
+	 * Creates a data set, at version 1
+	 * @param aircraftDAO the loaded aircraft
+	 * @param crewDAO the loaded crew
+	 * @param routeDAO the loaded routes
+	 * @param passengerNumbersDAO the loaded passenger numbers
+	 */
+	public DataSet(IAircraftDAO aircraftDAO, ICrewDAO crewDAO, IRouteDAO routeDAO, IPassengerNumbersDAO passengerNumbersDAO) {
+		this(aircraftDAO, crewDAO, routeDAO, passengerNumbersDAO, 1);
+	}
+
+	private DataSet(IAircraftDAO aircraftDAO, ICrewDAO crewDAO, IRouteDAO routeDAO, IPassengerNumbersDAO passengerNumbersDAO, long version) {
+		if(aircraftDAO == null || crewDAO == null || routeDAO == null || passengerNumbersDAO == null) {
+			throw new NullPointerException("A data set needs all four DAOs");
+		}
+		this.aircraftDAO = aircraftDAO;
+		this.crewDAO = crewDAO;
+		this.routeDAO = routeDAO;
+		this.passengerNumbersDAO = passengerNumbersDAO;
+		this.version = version;
+	}
+
+	/**
+	 * Returns a copy of this data set with different aircraft
+	 * @param aircraftDAO the new aircraft
+	 * @return the new data set, one version on from this one
+	 */
+	public DataSet withAircraft(IAircraftDAO aircraftDAO) {
+		return new DataSet(aircraftDAO, crewDAO, routeDAO, passengerNumbersDAO, version + 1);
+	}
+
+	/**
+	 * Returns a copy of this data set with different crew
+	 * @param crewDAO the new crew
+	 * @return the new data set, one version on from this one
+	 */
+	public DataSet withCrew(ICrewDAO crewDAO) {
+		return new DataSet(aircraftDAO, crewDAO, routeDAO, passengerNumbersDAO, version + 1);
+	}
+
+	/**
+	 * Returns a copy of this data set with different routes
+	 * @param routeDAO the new routes
+	 * @return the new data set, one version on from this one
+	 */
+	public DataSet withRoutes(IRouteDAO routeDAO) {
+		return new DataSet(aircraftDAO, crewDAO, routeDAO, passengerNumbersDAO, version + 1);
+	}
+
+	/**
+	 * Returns a copy of this data set with different passenger numbers
+	 * @param passengerNumbersDAO the new passenger numbers
+	 * @return the new data set, one version on from this one
+	 */
+	public DataSet withPassengerNumbers(IPassengerNumbersDAO passengerNumbersDAO) {
+		return new DataSet(aircraftDAO, crewDAO, routeDAO, passengerNumbersDAO, version + 1);
+	}
+
+	/**
+	 * Returns the aircraft
+	 * @return the aircraft DAO
+	 */
+	public IAircraftDAO getAircraftDAO() {
+		return aircraftDAO;
+	}
+
+	/**
+	 * Returns the crew
+	 * @return the crew DAO
+	 */
+	public ICrewDAO getCrewDAO() {
+		return crewDAO;
+	}
+
+	/**
+	 * Returns the routes
+	 * @return the route DAO
+	 */
+	public IRouteDAO getRouteDAO() {
+		return routeDAO;
+	}
+
+	/**
+	 * Returns the passenger numbers
+	 * @return the passenger numbers DAO
+	 */
+	public IPassengerNumbersDAO getPassengerNumbersDAO() {
+		return passengerNumbersDAO;
+	}
+
+	/**
+	 * Returns which version of the data this is. Each DAO replaced adds one
+	 * @return the version, starting from 1
+	 */
+	public long getVersion() {
+		return version;
+	}
+}
@@ -0,0 +1,479 @@
+package solution;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import baseclasses.Aircraft;
+import baseclasses.Aircraft.Manufacturer;
+import baseclasses.CabinCrew;
+import baseclasses.Crew;
+import baseclasses.DataLoadingException;
+import baseclasses.Pilot;
+import baseclasses.Route;
+
+/**
+ * Saves everything loaded into the four DAOs to a single binary file, so later runs can open it in a few
+ * milliseconds instead of parsing the CSV, JSON, XML and SQLite files again.
+ *
+ * The file starts with the size, last modified time and CRC32 checksum of every source file it was built from.
+ * A snapshot is only used if every source file still matches, so changing any of them means the data is loaded from
+ * the files again. The checksum is only worked out again for a file whose size is the same but whose modified time
+ * isn't, such as one copied back into place, so opening an unchanged data set never reads the source files.
+ *
+ * After the header, every string is stored once in a dictionary and the aircraft, crew and routes are fixed-width
+ * records of ints referring to it, so loading is bulk copies out of the mapped file plus one String per distinct value.
+ * The passenger numbers are the DAO's hash table itself, written slot for slot, so not a single key is rehashed
+ * on loading. The aircraft, crew and route indexes are rebuilt from the records, as they are maps of Java objects.
+ *
+ * All numbers are big endian, as written by DataOutputStream and read by ByteBuffer.
+ */
+public final class DataSnapshot {
+
+	private static final int MAGIC = 0x41534E50;//"ASNP"
+	private static final int VERSION = 2;
+
+	//ints per record
+	private static final int AIRCRAFT_FIELDS = 7;
+	private static final int PILOT_FIELDS = 6;
+	private static final int CABIN_CREW_FIELDS = 5;
+	private static final int ROUTE_FIELDS = 9;
+
+	//stands in for a null string, time or duration
+	private static final int NONE = -1;
+
+	private DataSnapshot() {
+	}
+
+	/**
+	 * Writes everything currently loaded into the DAOs to a snapshot. This should be called straight after loading
+	 * them from the sources, as the checksums stored are of the source files as they are when this is called.
+	 * The snapshot is written to a temporary file first and moved into place, so it is never seen half written
+	 * @param snapshot the file to write, replacing it if it exists
+	 * @param sources the files the DAOs were loaded from, in the order they will be passed to load()
+	 * @param aircraftDAO the aircraft
+	 * @param crewDAO the crew
+	 * @param routeDAO the routes
+	 * @param passengerNumbersDAO the passenger numbers. Only those in its cache are saved, not any loaded on demand
+	 * @throws IOException if a source file can't be read or the snapshot can't be written
+	 */
+	public static void write(Path snapshot, List<Path> sources, AircraftDAO aircraftDAO, CrewDAO crewDAO, RouteDAO routeDAO,
+			PassengerNumbersDAO passengerNumbersDAO) throws IOException {
+		long[][] fingerprints = fingerprints(sources);
+
+		Dictionary strings = new Dictionary();
+		int[] aircraft = aircraftRecords(aircraftDAO.contents.aircraftList, strings);
+		IntList ratings = new IntList();
+		CrewDAO.Contents crew = crewDAO.contents;
+		int[] pilots = crewRecords(crew.pilots, PILOT_FIELDS, strings, ratings);
+		int[] cabinCrew = crewRecords(crew.crew, CABIN_CREW_FIELDS, strings, ratings);
+		int[] routes = routeRecords(routeDAO.contents.routeList, strings);
+		LongIntHashMap passengerNumbers = passengerNumbersDAO.passengerNumbers;
+
+		Path parent = snapshot.toAbsolutePath().getParent();
+		Path temp = Files.createTempFile(parent, snapshot.getFileName().toString(), ".tmp");
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(fingerprints.length);
+				for(long[] fingerprint : fingerprints) {
+					for(long value : fingerprint) {
+						out.writeLong(value);
+					}
+				}
+
+				strings.writeTo(out);
+				writeInts(out, aircraft);
+				writeInts(out, ratings.toArray());
+				writeInts(out, pilots);
+				writeInts(out, cabinCrew);
+				writeInts(out, routes);
+				passengerNumbers.writeTo(out);
+			}
+			Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Checks whether a snapshot exists and was built from the source files as they are now
+	 * @param snapshot the snapshot file
+	 * @param sources the files it was built from, in the order they were passed to write()
+	 * @return true if load() would use the snapshot
+	 * @throws IOException if a source file can't be read
+	 */
+	public static boolean isCurrent(Path snapshot, List<Path> sources) throws IOException {
+		if(!Files.isRegularFile(snapshot)) {
+			return false;
+		}
+		try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+			MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return matchesSources(in, sources);
+		}
+		catch (BufferUnderflowException e) {
+			return false;//too short to even hold the header
+		}
+	}
+
+	/**
+	 * Replaces whatever is loaded into the DAOs with the contents of a snapshot, if the snapshot is current.
+	 * The whole snapshot is read before any DAO is touched, so if it turns out to be damaged the DAOs are left as they were
+	 * @param snapshot the snapshot file
+	 * @param sources the files it was built from, in the order they were passed to write()
+	 * @param aircraftDAO the DAO to load the aircraft into
+	 * @param crewDAO the DAO to load the crew into
+	 * @param routeDAO the DAO to load the routes into
+	 * @param passengerNumbersDAO the DAO to load the passenger numbers into. Replacing its forecasts also stops any loading on demand
+	 * @return true if the snapshot was loaded, false if there is no snapshot or a source file has changed since it was
+	 * written, in which case the DAOs haven't been touched and the data needs loading from the sources
+	 * @throws DataLoadingException if the snapshot matches the sources but can't be read. The exception's "cause" indicates the underlying exception
+	 */
+	public static boolean load(Path snapshot, List<Path> sources, AircraftDAO aircraftDAO, CrewDAO crewDAO, RouteDAO routeDAO,
+			PassengerNumbersDAO passengerNumbersDAO) throws DataLoadingException {
+		if(!Files.isRegularFile(snapshot)) {
+			return false;
+		}
+		try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+			MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if(!matchesSources(in, sources)) {
+				return false;
+			}
+
+			String[] strings = readStrings(in);
+			List<Aircraft> aircraft = toAircraft(readInts(in, AIRCRAFT_FIELDS), strings);
+			int[] ratings = readInts(in, 1);
+			List<Pilot> pilots = new ArrayList<>();
+			for(Crew c : toCrew(readInts(in, PILOT_FIELDS), PILOT_FIELDS, strings, ratings)) {
+				pilots.add((Pilot) c);
+			}
+			List<CabinCrew> cabinCrew = new ArrayList<>();
+			for(Crew c : toCrew(readInts(in, CABIN_CREW_FIELDS), CABIN_CREW_FIELDS, strings, ratings)) {
+				cabinCrew.add((CabinCrew) c);
+			}
+			List<Route> routes = toRoutes(readInts(in, ROUTE_FIELDS), strings);
+			LongIntHashMap passengerNumbers = LongIntHashMap.readFrom(in);
+			if(in.hasRemaining()) {
+				throw new IllegalArgumentException(in.remaining() + " bytes left over at the end of the snapshot");
+			}
+
+			//each DAO swaps straight from its old contents to the snapshot's, so no reader sees it empty
+			aircraftDAO.replace(aircraft);
+			crewDAO.replace(pilots, cabinCrew);
+			routeDAO.replace(routes);
+			passengerNumbersDAO.replace(passengerNumbers);
+			return true;
+		}
+		catch (IOException | BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+			throw new DataLoadingException(e);
+		}
+	}
+
+	/**
+	 * Reads the header of a snapshot and compares it with the source files
+	 * @param in the snapshot, positioned at the start. It is left just after the header
+	 * @param sources the source files
+	 * @return true if the snapshot is in this format and every source file has the size and contents recorded for it
+	 */
+	private static boolean matchesSources(ByteBuffer in, List<Path> sources) throws IOException {
+		if(in.getInt() != MAGIC || in.getInt() != VERSION || in.getInt() != sources.size()) {
+			return false;
+		}
+		for(Path source : sources) {
+			long size = in.getLong();
+			long modified = in.getLong();
+			long crc = in.getLong();
+			if(!Files.isRegularFile(source) || Files.size(source) != size) {
+				return false;//most changes are noticed here, without reading the file
+			}
+			//an untouched file is taken to be unchanged. Only a touched one of the same size is read and checksummed
+			if(Files.getLastModifiedTime(source).toMillis() != modified && checksum(source) != crc) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Works out the size, last modified time and checksum of each source file
+	 * @return the size, the modified time in milliseconds and then the checksum of each file
+	 */
+	private static long[][] fingerprints(List<Path> sources) throws IOException {
+		long[][] fingerprints = new long[sources.size()][];
+		for(int i = 0; i < fingerprints.length; i++) {
+			Path source = sources.get(i);
+			//the time is read before the contents, so a write made while checksumming makes the snapshot look stale
+			long modified = Files.getLastModifiedTime(source).toMillis();
+			fingerprints[i] = new long[] {Files.size(source), modified, checksum(source)};
+		}
+		return fingerprints;
+	}
+
+	/**
+	 * Works out the CRC32 checksum of a file's contents
+	 */
+	private static long checksum(Path p) throws IOException {
+		CRC32 crc = new CRC32();
+		ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+		try (FileChannel channel = FileChannel.open(p, StandardOpenOption.READ)) {
+			while(channel.read(buffer) >= 0) {
+				buffer.flip();
+				crc.update(buffer);
+				buffer.clear();
+			}
+		}
+		return crc.getValue();
+	}
+
+	private static int[] aircraftRecords(List<Aircraft> aircraft, Dictionary strings) {
+		int[] records = new int[aircraft.size() * AIRCRAFT_FIELDS];
+		int i = 0;
+		for(Aircraft a : aircraft) {
+			records[i++] = strings.id(a.getTailCode());
+			records[i++] = strings.id(a.getModel());
+			records[i++] = strings.id(a.getTypeCode());
+			records[i++] = strings.id(a.getManufacturer() == null ? null : a.getManufacturer().name());
+			records[i++] = strings.id(a.getStartingPosition());
+			records[i++] = a.getSeats();
+			records[i++] = a.getCabinCrewRequired();
+		}
+		return records;
+	}
+
+	private static List<Aircraft> toAircraft(int[] records, String[] strings) {
+		List<Aircraft> aircraft = new ArrayList<>(records.length / AIRCRAFT_FIELDS);
+		for(int i = 0; i < records.length; i += AIRCRAFT_FIELDS) {
+			Aircraft a = new Aircraft();
+			a.setTailCode(string(strings, records[i]));
+			a.setModel(string(strings, records[i + 1]));
+			a.setTypeCode(SymbolTable.TYPES.intern(string(strings, records[i + 2])));
+			String manufacturer = string(strings, records[i + 3]);
+			a.setManufacturer(manufacturer == null ? null : Manufacturer.valueOf(manufacturer));
+			a.setStartingPosition(SymbolTable.AIRPORTS.intern(string(strings, records[i + 4])));
+			a.setSeats(records[i + 5]);
+			a.setCabinCrewRequired(records[i + 6]);
+			aircraft.add(a);
+		}
+		return aircraft;
+	}
+
+	/**
+	 * Builds the records for pilots or cabin crew. Type ratings vary in number, so they go in a table of their own
+	 * and each record holds where its ratings start in the table and how many there are
+	 * @param fields PILOT_FIELDS or CABIN_CREW_FIELDS. Pilots have their rank as an extra field on the end
+	 */
+	private static int[] crewRecords(List<? extends Crew> crew, int fields, Dictionary strings, IntList ratings) {
+		int[] records = new int[crew.size() * fields];
+		int i = 0;
+		for(Crew c : crew) {
+			records[i++] = strings.id(c.getForename());
+			records[i++] = strings.id(c.getSurname());
+			records[i++] = strings.id(c.getHomeBase());
+			records[i++] = ratings.size();
+			records[i++] = c.getTypeRatings().size();
+			for(String typeCode : c.getTypeRatings()) {
+				ratings.add(strings.id(typeCode));
+			}
+			if(fields == PILOT_FIELDS) {
+				Pilot.Rank rank = ((Pilot) c).getRank();
+				records[i++] = strings.id(rank == null ? null : rank.name());
+			}
+		}
+		return records;
+	}
+
+	private static List<Crew> toCrew(int[] records, int fields, String[] strings, int[] ratings) {
+		List<Crew> crew = new ArrayList<>(records.length / fields);
+		for(int i = 0; i < records.length; i += fields) {
+			Crew c;
+			if(fields == PILOT_FIELDS) {
+				Pilot pilot = new Pilot();
+				String rank = string(strings, records[i + 5]);
+				pilot.setRank(rank == null ? null : Pilot.Rank.valueOf(rank));
+				c = pilot;
+			} else {
+				c = new CabinCrew();
+			}
+			c.setForename(string(strings, records[i]));
+			c.setSurname(string(strings, records[i + 1]));
+			c.setHomeBase(SymbolTable.AIRPORTS.intern(string(strings, records[i + 2])));
+			int start = records[i + 3];
+			int end = start + records[i + 4];
+			for(int r = start; r < end; r++) {
+				c.setQualifiedFor(SymbolTable.TYPES.intern(string(strings, ratings[r])));
+			}
+			crew.add(c);
+		}
+		return crew;
+	}
+
+	private static int[] routeRecords(List<Route> routes, Dictionary strings) {
+		int[] records = new int[routes.size() * ROUTE_FIELDS];
+		int i = 0;
+		for(Route r : routes) {
+			records[i++] = r.getFlightNumber();
+			records[i++] = strings.id(r.getDayOfWeek());
+			records[i++] = strings.id(r.getDepartureAirport());
+			records[i++] = r.getDepartureTime() == null ? NONE : r.getDepartureTime().toSecondOfDay();
+			records[i++] = strings.id(r.getDepartureAirportCode());
+			records[i++] = strings.id(r.getArrivalAirport());
+			records[i++] = r.getArrivalTime() == null ? NONE : r.getArrivalTime().toSecondOfDay();
+			records[i++] = strings.id(r.getArrivalAirportCode());
+			records[i++] = r.getDuration() == null ? NONE : Math.toIntExact(r.getDuration().getSeconds());
+		}
+		return records;
+	}
+
+	private static List<Route> toRoutes(int[] records, String[] strings) {
+		List<Route> routes = new ArrayList<>(records.length / ROUTE_FIELDS);
+		for(int i = 0; i < records.length; i += ROUTE_FIELDS) {
+			Route r = new Route();
+			r.setFlightNumber(records[i]);
+			r.setDayOfWeek(string(strings, records[i + 1]));
+			r.setDepartureAirport(string(strings, records[i + 2]));
+			r.setDepartureTime(records[i + 3] == NONE ? null : LocalTime.ofSecondOfDay(records[i + 3]));
+			r.setDepartureAirportCode(SymbolTable.AIRPORTS.intern(string(strings, records[i + 4])));
+			r.setArrivalAirport(string(strings, records[i + 5]));
+			r.setArrivalTime(records[i + 6] == NONE ? null : LocalTime.ofSecondOfDay(records[i + 6]));
+			r.setArrivalAirportCode(SymbolTable.AIRPORTS.intern(string(strings, records[i + 7])));
+			r.setDuration(records[i + 8] == NONE ? null : Duration.ofSeconds(records[i + 8]));
+			routes.add(r);
+		}
+		return routes;
+	}
+
+	private static String string(String[] strings, int id) {
+		return id == NONE ? null : strings[id];
+	}
+
+	/**
+	 * Writes a section of records: the number of ints, then the ints
+	 */
+	private static void writeInts(DataOutputStream out, int[] records) throws IOException {
+		out.writeInt(records.length);
+		for(int value : records) {
+			out.writeInt(value);
+		}
+	}
+
+	/**
+	 * Bulk copies a section written by writeInts() out of the snapshot
+	 * @param fields the number of ints in each record, which the section must be a whole number of
+	 */
+	private static int[] readInts(ByteBuffer in, int fields) {
+		int length = in.getInt();
+		if(length < 0 || length % fields != 0) {
+			throw new IllegalArgumentException("A section of " + length + " ints can't hold records of " + fields);
+		}
+		int[] records = new int[length];
+		IntBuffer ints = in.asIntBuffer();
+		ints.get(records);
+		in.position(in.position() + length * Integer.BYTES);
+		return records;
+	}
+
+	/**
+	 * Reads the dictionary written by Dictionary.writeTo(): the number of strings, the offset of each string's UTF-8
+	 * bytes and of the end of the last, then all the bytes
+	 */
+	private static String[] readStrings(ByteBuffer in) {
+		int count = in.getInt();
+		if(count < 0) {
+			throw new IllegalArgumentException("The dictionary can't hold " + count + " strings");
+		}
+		int[] offsets = new int[count + 1];
+		in.asIntBuffer().get(offsets);
+		in.position(in.position() + offsets.length * Integer.BYTES);
+
+		byte[] bytes = new byte[offsets[count]];
+		in.get(bytes);
+		String[] strings = new String[count];
+		for(int i = 0; i < count; i++) {
+			strings[i] = new String(bytes, offsets[i], offsets[i + 1] - offsets[i], StandardCharsets.UTF_8);
+		}
+		return strings;
+	}
+
+	/**
+	 * Gives each distinct string an id, in the order they are first seen
+	 */
+	private static final class Dictionary {
+
+		private final Map<String, Integer> ids = new HashMap<>();
+		private final List<String> strings = new ArrayList<>();
+
+		int id(String s) {
+			if(s == null) {
+				return NONE;
+			}
+			Integer id = ids.get(s);
+			if(id == null) {
+				id = strings.size();
+				ids.put(s, id);
+				strings.add(s);
+			}
+			return id;
+		}
+
+		void writeTo(DataOutputStream out) throws IOException {
+			List<byte[]> encoded = new ArrayList<>(strings.size());
+			for(String s : strings) {
+				encoded.add(s.getBytes(StandardCharsets.UTF_8));
+			}
+
+			out.writeInt(strings.size());
+			int offset = 0;
+			for(byte[] b : encoded) {
+				out.writeInt(offset);
+				offset += b.length;
+			}
+			out.writeInt(offset);
+			for(byte[] b : encoded) {
+				out.write(b);
+			}
+		}
+	}
+
+	/**
+	 * A growable list of ints, for the type ratings table
+	 */
+	private static final class IntList {
+
+		private int[] values = new int[64];
+		private int size;
+
+		void add(int value) {
+			if(size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+		int size() {
+			return size;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package solution;
+
+/**
+ * The event for one flight being allocated, with the time spent in each phase. Get one from
+ * SchedulerEvents.flightAllocated().
+ *
+ * This class records nothing. When JFR is there, the event handed out is the one in the jfr source set, which
+ * records these fields as a JFR event while a flight recording is running with it enabled.
+ */
+class FlightAllocatedEvent {
+
+	int flightNumber;
+	String departure;
+	long aircraftNanos;
+	long pilotNanos;
+	long cabinCrewNanos;
+	long completionNanos;
+	boolean complete;
+
+	/**
+	 * Starts timing the allocation
+	 */
+	void begin() {
+	}
+
+	/**
+	 * Stops timing the allocation
+	 */
+	void end() {
+	}
+
+	/**
+	 * Checks whether the event would be recorded, so the fields are only filled in when they are needed
+	 * @return true if commit() would record the event
+	 */
+	boolean shouldCommit() {
+		return false;
+	}
+
+	/**
+	 * Records the event with the fields as they are now
+	 */
+	void commit() {
+	}
+}
@@ -0,0 +1,431 @@
+package solution;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import baseclasses.Aircraft;
+import baseclasses.CabinCrew;
+import baseclasses.Crew;
+import baseclasses.Pilot;
+
+/**
+ * Improves a planned set of allocations until a deadline, using the time the greedy pass leaves over.
+ *
+ * Two kinds of move are tried, over and over:
+ * <ul>
+ * <li>Fill: a flight missing a pilot or cabin crew member takes a qualified crew member who is free, or one who
+ * is only busy on one other flight, if that flight can be given someone else instead. Every fill gives a flight
+ * one more of the crew it needs without taking any from another flight, so fills are always accepted.</li>
+ * <li>Balance: a crew member on a flight is swapped for a qualified crew member who is free at the time, scored on
+ * the change in the sum of squared minutes flown, which falls as work is spread more evenly. Swaps that make the
+ * balance worse are accepted with a probability that falls to nothing as the deadline gets closer (simulated annealing).</li>
+ * </ul>
+ * Each move only looks at the flights and crew it touches: booking lookups are O(log n) in a crew member's
+ * flights and a move's score is worked out from two crew members' totals, so a move costs microseconds.
+ * Candidates are drawn from the type rating bitmaps of the SchedulingResources the plan was made from, so nothing is
+ * built over the whole crew for a search, only an array of positions for each type the planned aircraft use.
+ *
+ * Annealing wanders away from good plans, so the plan left when the search stops is the best one it passed
+ * through, not the one it stopped at. Plans are ranked by complete flights, then crew places filled, then the lowest
+ * sum of squared minutes. Flights never lose crew, so every fill makes a new best, and between bests only balance
+ * swaps happen. The crew of each flight is saved the first time a swap changes it after a best, and the saved crew
+ * are put back at the end, so keeping the best plan costs no more than the flights the search has touched.
+ *
+ * Aircraft are left as the greedy pass chose them.
+ */
+final class LocalSearch {
+
+	//how many candidates a move samples before giving up
+	private static final int CANDIDATES = 8;
+
+	private final List<Allocation> plan;
+	private final List<Allocation> incomplete = new ArrayList<>();
+	private final Random random;
+
+	//each crew member's flights, by departure, so the flights overlapping a window are a floor lookup away
+	private final Map<Crew, TreeMap<Long, Allocation>> bookings = new IdentityHashMap<>();
+	private final Map<Crew, long[]> minutesFlown = new IdentityHashMap<>();
+	private final TypeRatingIndex<Pilot> pilots;
+	private final TypeRatingIndex<CabinCrew> cabinCrew;
+	//the positions of the crew rated for each type, indexed by type id and read from the bitmaps when a type first comes up
+	private final List<int[]> pilotsByType = new ArrayList<>();
+	private final List<int[]> cabinCrewByType = new ArrayList<>();
+
+	//the sum of squared minutes flown over all the crew, kept up to date by book() and unbook()
+	private long squaredMinutes;
+	private long bestSquaredMinutes;
+	//the crew each flight had in the best plan, for the flights changed since
+	private final Map<Allocation, Crewing> sinceBest = new IdentityHashMap<>();
+
+	private long moves;
+	private long fills;
+
+	/**
+	 * Prepares to improve a plan. The allocations in the plan are changed in place
+	 * @param plan the allocations from a planning run
+	 * @param resources the aircraft and crew the plan was made from, whose crew can be used
+	 * @param seed the seed for choosing moves
+	 */
+	LocalSearch(List<Allocation> plan, SchedulingResources resources, long seed) {
+		this.plan = plan;
+		this.random = new Random(seed);
+		this.pilots = resources.pilots;
+		this.cabinCrew = resources.cabinCrew;
+
+		for(Allocation allocation : plan) {
+			for(Crew member : crewOf(allocation)) {
+				book(member, allocation);
+			}
+			if(!allocation.complete && allocation.aircraft != null) {
+				incomplete.add(allocation);
+			}
+		}
+		bestSquaredMinutes = squaredMinutes;
+	}
+
+	/**
+	 * Tries moves until the deadline, then leaves the plan as the best one found
+	 * @param deadline the System.nanoTime() to stop at
+	 */
+	void improve(long deadline) {
+		search(deadline, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Tries a fixed number of moves, cooling by the moves made rather than the time taken, then leaves the plan as
+	 * the best one found. The same plan and seed always take the same moves, so searches can be compared move for move
+	 * @param maxMoves the number of moves to try
+	 */
+	void improveFor(long maxMoves) {
+		search(0, maxMoves);
+	}
+
+	/**
+	 * Tries moves until the deadline or until maxMoves have been tried, whichever the search is bounded by
+	 */
+	private void search(long deadline, long maxMoves) {
+		if(plan.isEmpty()) {
+			return;
+		}
+		boolean timed = maxMoves == Long.MAX_VALUE;
+		long start = System.nanoTime();
+		double startTemperature = averageSquaredMinutes();
+		double temperature = startTemperature;
+		long tried = 0;
+
+		while(true) {
+			//check the clock every few hundred moves, it is more expensive than a move
+			for(int i = 0; i < 256 && tried < maxMoves; i++, tried++) {
+				if(!incomplete.isEmpty() && random.nextBoolean()) {
+					fill(incomplete.get(random.nextInt(incomplete.size())));
+				} else {
+					balance(plan.get(random.nextInt(plan.size())), temperature);
+				}
+				moves++;
+			}
+			double remaining;
+			if(timed) {
+				long now = System.nanoTime();
+				if(now >= deadline) {
+					break;
+				}
+				remaining = (double) (deadline - now) / Math.max(1, deadline - start);
+			} else {
+				if(tried >= maxMoves) {
+					break;
+				}
+				remaining = (double) (maxMoves - tried) / maxMoves;
+			}
+			//cool towards nothing at the end, so the last moves only ever improve the balance
+			temperature = startTemperature * remaining * remaining;
+		}
+		restoreBest();
+	}
+
+	/**
+	 * Returns the sum of squared minutes flown over all the crew in the plan as it is now
+	 * @return the sum, which is lower the more evenly the work is spread
+	 */
+	long getSquaredMinutes() {
+		return squaredMinutes;
+	}
+
+	/**
+	 * Returns the number of moves tried so far
+	 * @return the number of moves
+	 */
+	long getMoves() {
+		return moves;
+	}
+
+	/**
+	 * Returns the number of crew places filled by the search
+	 * @return the number of fills
+	 */
+	long getFills() {
+		return fills;
+	}
+
+	/**
+	 * Gives an incomplete flight one more of the crew it is missing, if a candidate can be found
+	 */
+	private void fill(Allocation f) {
+		boolean needsPilot = f.captain == null || f.firstOfficer == null;
+		TypeRatingIndex<? extends Crew> index = needsPilot ? pilots : cabinCrew;
+		int[] qualified = qualified(index, needsPilot ? pilotsByType : cabinCrewByType, f.aircraft);
+		if(qualified == null) {
+			return;
+		}
+
+		for(int i = 0; i < CANDIDATES; i++) {
+			Crew x = index.get(qualified[random.nextInt(qualified.length)]);
+			if(isOn(x, f)) {
+				continue;
+			}
+			if(isFree(x, f, null)) {
+				join(x, f);
+				return;
+			}
+
+			//x can still be moved if one flight is all that is in the way and somebody else can take x's place on it
+			Allocation g = onlyClash(x, f);
+			if(g != null) {
+				Crew y = replacementFor(x, g);
+				if(y != null) {
+					swap(g, x, y);
+					join(x, f);
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Swaps one crew member on a flight for a less used one, accepted by the annealing rule
+	 */
+	private void balance(Allocation f, double temperature) {
+		List<Crew> crew = crewOf(f);
+		if(crew.isEmpty()) {
+			return;
+		}
+		Crew a = crew.get(random.nextInt(crew.size()));
+		Crew b = replacementFor(a, f);
+		if(b == null) {
+			return;
+		}
+
+		//change in the sum of squared minutes if f's minutes move from a to b
+		long d = f.minutes();
+		long ma = minutesFlown(a);
+		long mb = minutesFlown(b);
+		double delta = 2.0 * d * (mb - ma + d);
+		if(delta < 0 || (temperature > 0 && random.nextDouble() < Math.exp(-delta / temperature))) {
+			swap(f, a, b);
+			if(squaredMinutes < bestSquaredMinutes) {
+				newBest();
+			}
+		}
+	}
+
+	/**
+	 * Makes the plan as it is now the best one
+	 */
+	private void newBest() {
+		sinceBest.clear();
+		bestSquaredMinutes = squaredMinutes;
+	}
+
+	/**
+	 * Puts back the crew of every flight changed since the best plan
+	 */
+	private void restoreBest() {
+		for(Map.Entry<Allocation, Crewing> e : sinceBest.entrySet()) {
+			Allocation f = e.getKey();
+			for(Crew member : crewOf(f)) {
+				unbook(member, f);
+			}
+			e.getValue().restore(f);
+			for(Crew member : crewOf(f)) {
+				book(member, f);
+			}
+		}
+		newBest();
+	}
+
+	/**
+	 * Finds someone who could take x's place on flight g: qualified for g's aircraft, free for g, and not already on it
+	 */
+	private Crew replacementFor(Crew x, Allocation g) {
+		boolean pilot = x instanceof Pilot;
+		TypeRatingIndex<? extends Crew> index = pilot ? pilots : cabinCrew;
+		int[] qualified = qualified(index, pilot ? pilotsByType : cabinCrewByType, g.aircraft);
+		if(qualified == null) {
+			return null;
+		}
+		for(int i = 0; i < CANDIDATES; i++) {
+			Crew y = index.get(qualified[random.nextInt(qualified.length)]);
+			if(y != x && !isOn(y, g) && isFree(y, g, null)) {
+				return y;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the positions in an index of the crew rated for an aircraft's type, or null if nobody is
+	 */
+	private static int[] qualified(TypeRatingIndex<? extends Crew> index, List<int[]> byType, Aircraft aircraft) {
+		int typeId = index.typeId(aircraft.getTypeCode());
+		if(typeId < 0) {
+			return null;
+		}
+		return SymbolTable.getOrCreate(byType, typeId, () -> index.rated(typeId).stream().toArray());
+	}
+
+	private long minutesFlown(Crew member) {
+		long[] minutes = minutesFlown.get(member);
+		return minutes == null ? 0 : minutes[0];
+	}
+
+	/**
+	 * Checks whether a crew member has no flight overlapping f, ignoring one flight
+	 */
+	private boolean isFree(Crew member, Allocation f, Allocation ignoring) {
+		TreeMap<Long, Allocation> booked = bookings.get(member);
+		if(booked == null) {
+			return true;
+		}
+		//bookings don't overlap, so walking back from the last one starting before f lands soon reaches one that ends first
+		for(Map.Entry<Long, Allocation> e = booked.lowerEntry(f.lands); e != null; e = booked.lowerEntry(e.getKey())) {
+			Allocation g = e.getValue();
+			if(g.lands <= f.departs) {
+				return true;
+			}
+			if(g != ignoring) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the single flight stopping a crew member being free for f, or null if there are none or several
+	 */
+	private Allocation onlyClash(Crew member, Allocation f) {
+		TreeMap<Long, Allocation> booked = bookings.get(member);
+		if(booked == null) {
+			return null;
+		}
+		Map.Entry<Long, Allocation> last = booked.lowerEntry(f.lands);
+		if(last == null || last.getValue().lands <= f.departs) {
+			return null;
+		}
+		Allocation g = last.getValue();
+		return isFree(member, f, g) ? g : null;
+	}
+
+	private boolean isOn(Crew member, Allocation f) {
+		return member == f.captain || member == f.firstOfficer || f.cabinCrew.contains(member);
+	}
+
+	/**
+	 * Puts a crew member into the first empty place on f they can fill
+	 */
+	private void join(Crew member, Allocation f) {
+		if(member instanceof Pilot) {
+			if(f.captain == null) {
+				f.captain = (Pilot) member;
+			} else {
+				f.firstOfficer = (Pilot) member;
+			}
+		} else {
+			f.cabinCrew.add((CabinCrew) member);
+		}
+		book(member, f);
+		fills++;
+
+		if(f.isFilled()) {
+			f.complete = true;
+			incomplete.remove(f);
+		}
+		newBest();//one more crew place filled, and nothing taken from anywhere else
+	}
+
+	/**
+	 * Replaces crew member a with b on flight f
+	 */
+	private void swap(Allocation f, Crew a, Crew b) {
+		sinceBest.computeIfAbsent(f, Crewing::new);
+		if(f.captain == a) {
+			f.captain = (Pilot) b;
+		} else if(f.firstOfficer == a) {
+			f.firstOfficer = (Pilot) b;
+		} else {
+			f.cabinCrew.set(f.cabinCrew.indexOf(a), (CabinCrew) b);
+		}
+		unbook(a, f);
+		book(b, f);
+	}
+
+	private void book(Crew member, Allocation f) {
+		bookings.computeIfAbsent(member, k -> new TreeMap<>()).put(f.departs, f);
+		long[] minutes = minutesFlown.computeIfAbsent(member, k -> new long[1]);
+		long d = f.minutes();
+		squaredMinutes += 2 * minutes[0] * d + d * d;//(m + d)^2 - m^2
+		minutes[0] += d;
+	}
+
+	private void unbook(Crew member, Allocation f) {
+		bookings.get(member).remove(f.departs);
+		long[] minutes = minutesFlown.get(member);
+		long d = f.minutes();
+		squaredMinutes -= 2 * minutes[0] * d - d * d;//m^2 - (m - d)^2
+		minutes[0] -= d;
+	}
+
+	private static List<Crew> crewOf(Allocation allocation) {
+		List<Crew> crew = new ArrayList<>(allocation.cabinCrew.size() + 2);
+		if(allocation.captain != null) {
+			crew.add(allocation.captain);
+		}
+		if(allocation.firstOfficer != null) {
+			crew.add(allocation.firstOfficer);
+		}
+		crew.addAll(allocation.cabinCrew);
+		return crew;
+	}
+
+	/**
+	 * The crew a flight had, so they can be put back
+	 */
+	private static final class Crewing {
+		private final Pilot captain;
+		private final Pilot firstOfficer;
+		private final List<CabinCrew> cabinCrew;
+
+		Crewing(Allocation f) {
+			captain = f.captain;
+			firstOfficer = f.firstOfficer;
+			cabinCrew = new ArrayList<>(f.cabinCrew);
+		}
+
+		void restore(Allocation f) {
+			f.captain = captain;
+			f.firstOfficer = firstOfficer;
+			f.cabinCrew.clear();
+			f.cabinCrew.addAll(cabinCrew);
+		}
+	}
+
+	//a starting temperature on the scale of the changes a balance move makes
+	private double averageSquaredMinutes() {
+		double total = 0;
+		for(Allocation allocation : plan) {
+			total += (double) allocation.minutes() * allocation.minutes();
+		}
+		return total / plan.size();
+	}
+}
@@ -0,0 +1,239 @@
+package solution;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * An open addressing hash map from primitive long keys to primitive int values.
+ * Keys and values live in two parallel arrays, so there is no boxing, no entry objects and
+ * lookups never allocate. Collisions are resolved by linear probing.
+ *
+ * This is not thread safe: callers that share a map between threads must publish it safely and not change it afterwards,
+ * making a copy() to change instead.
+ */
+final class LongIntHashMap {
+
+	//marks an unused slot. The key itself can still be stored, it is kept to one side in sentinelValue
+	private static final long EMPTY = Long.MIN_VALUE;
+	private static final float LOAD_FACTOR = 0.7f;
+
+	private long[] keys;
+	private int[] values;
+	private int mask;
+	private int size;
+	private int resizeAt;
+
+	private boolean hasSentinel;
+	private int sentinelValue;
+
+	/**
+	 * Creates an empty map
+	 */
+	LongIntHashMap() {
+		this(16);
+	}
+
+	/**
+	 * Creates an empty map sized to hold the expected number of entries without growing
+	 * @param expectedSize the number of entries expected
+	 */
+	LongIntHashMap(int expectedSize) {
+		allocate(capacityFor(expectedSize));
+	}
+
+	/**
+	 * Returns the value stored for a key
+	 * @param key the key to look up
+	 * @param missing the value to return if the key isn't in the map
+	 * @return the value for the key, or missing
+	 */
+	int get(long key, int missing) {
+		if(key == EMPTY) {
+			return hasSentinel ? sentinelValue : missing;
+		}
+		for(int slot = slot(key); ; slot = (slot + 1) & mask) {
+			long k = keys[slot];
+			if(k == key) {
+				return values[slot];
+			}
+			if(k == EMPTY) {
+				return missing;
+			}
+		}
+	}
+
+	/**
+	 * Stores a value for a key, replacing any value already stored for it
+	 * @param key the key
+	 * @param value the value to store
+	 */
+	void put(long key, int value) {
+		if(key == EMPTY) {
+			if(!hasSentinel) {
+				hasSentinel = true;
+				size++;
+			}
+			sentinelValue = value;
+			return;
+		}
+
+		int slot = slot(key);
+		while(true) {
+			long k = keys[slot];
+			if(k == key) {
+				values[slot] = value;
+				return;
+			}
+			if(k == EMPTY) {
+				break;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		keys[slot] = key;
+		values[slot] = value;
+		size++;
+		if(size > resizeAt) {
+			rehash(keys.length * 2);
+		}
+	}
+
+	/**
+	 * Stores every entry of another map in this one, replacing the values of keys already here
+	 * @param other the map to copy the entries from
+	 */
+	void putAll(LongIntHashMap other) {
+		if(other.hasSentinel) {
+			put(EMPTY, other.sentinelValue);
+		}
+		for(int i = 0; i < other.keys.length; i++) {
+			if(other.keys[i] != EMPTY) {
+				put(other.keys[i], other.values[i]);
+			}
+		}
+	}
+
+	/**
+	 * Makes a copy of the map, which can be changed without changing this one
+	 * @return the copy
+	 */
+	LongIntHashMap copy() {
+		LongIntHashMap copy = new LongIntHashMap();
+		copy.keys = keys.clone();
+		copy.values = values.clone();
+		copy.mask = mask;
+		copy.size = size;
+		copy.resizeAt = resizeAt;
+		copy.hasSentinel = hasSentinel;
+		copy.sentinelValue = sentinelValue;
+		return copy;
+	}
+
+	/**
+	 * Returns the number of entries in the map
+	 * @return the number of entries in the map
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Removes every entry, keeping the current capacity
+	 */
+	void clear() {
+		Arrays.fill(keys, EMPTY);
+		size = 0;
+		hasSentinel = false;
+	}
+
+	/**
+	 * Writes the map's table exactly as it is laid out in memory, so readFrom() can restore it without rehashing a key
+	 * @param out where to write it
+	 * @throws IOException if the write fails
+	 */
+	void writeTo(DataOutput out) throws IOException {
+		out.writeInt(keys.length);
+		out.writeInt(size);
+		out.writeBoolean(hasSentinel);
+		out.writeInt(sentinelValue);
+		for(long k : keys) {
+			out.writeLong(k);
+		}
+		for(int v : values) {
+			out.writeInt(v);
+		}
+	}
+
+	/**
+	 * Restores a map written by writeTo(). The table is bulk copied out of the buffer as it is, which is
+	 * only valid because the hash function is the same one that placed the keys
+	 * @param in the buffer, positioned at the start of the map. It is left just after the end of it
+	 * @return the map
+	 * @throws IllegalArgumentException if the buffer doesn't hold a map
+	 * @throws java.nio.BufferUnderflowException if the buffer ends part way through the map
+	 */
+	static LongIntHashMap readFrom(ByteBuffer in) {
+		int capacity = in.getInt();
+		if(capacity < 16 || Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("Not a LongIntHashMap table, the capacity is " + capacity);
+		}
+		LongIntHashMap map = new LongIntHashMap();
+		map.size = in.getInt();
+		map.hasSentinel = in.get() != 0;
+		map.sentinelValue = in.getInt();
+		map.keys = new long[capacity];
+		map.values = new int[capacity];
+		map.mask = capacity - 1;
+		map.resizeAt = (int) (capacity * LOAD_FACTOR);
+
+		in.asLongBuffer().get(map.keys);
+		in.position(in.position() + capacity * Long.BYTES);
+		in.asIntBuffer().get(map.values);
+		in.position(in.position() + capacity * Integer.BYTES);
+		return map;
+	}
+
+	private int slot(long key) {
+		//finalising step of MurmurHash3, spreads keys that only differ in a few bits, such as consecutive dates
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int) key & mask;
+	}
+
+	private static int capacityFor(int expectedSize) {
+		long needed = (long) Math.ceil(Math.max(expectedSize, 1) / (double) LOAD_FACTOR);
+		if(needed > 1 << 30) {
+			throw new IllegalArgumentException("Too many entries for a LongIntHashMap: " + expectedSize);
+		}
+		return Math.max(16, Integer.highestOneBit((int) needed - 1) << 1);
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new int[capacity];
+		Arrays.fill(keys, EMPTY);
+		mask = capacity - 1;
+		resizeAt = (int) (capacity * LOAD_FACTOR);
+	}
+
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		allocate(capacity);
+		for(int i = 0; i < oldKeys.length; i++) {
+			long k = oldKeys[i];
+			if(k != EMPTY) {
+				int slot = slot(k);
+				while(keys[slot] != EMPTY) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = k;
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+}
@@ -1,15 +1,14 @@
 package solution;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.List;
 
 import baseclasses.DataLoadingException;
 
-import baseclasses.IAircraftDAO;
-import baseclasses.ICrewDAO;
-import baseclasses.IPassengerNumbersDAO;
-import baseclasses.IRouteDAO;
 import baseclasses.Route;
 import baseclasses.Schedule;
 
@@ -23,33 +22,62 @@ import baseclasses.Schedule;
 public class Main {
 
 	public static void main(String[] args) throws IllegalArgumentException {	
-		IAircraftDAO aircraft = new AircraftDAO();
-		IRouteDAO r=new RouteDAO();
-		ICrewDAO crewMembers = new CrewDAO();
-		IPassengerNumbersDAO pM= new PassengerNumbersDAO();
+		AircraftDAO aircraft = new AircraftDAO();
+		RouteDAO r=new RouteDAO();
+		CrewDAO crewMembers = new CrewDAO();
+		PassengerNumbersDAO pM= new PassengerNumbersDAO();
 		
 		Scheduler schedular=new Scheduler();
 		Schedule schedule=new Schedule(r,LocalDate.of(2021,1,19),LocalDate.of(2021, 2, 20));
 				
 		try {
+			Path aircraftFile = Paths.get("./data/schedule_aircraft.csv");
+			Path crewFile = Paths.get("./data/schedule_crew.json");
+			Path routesFile = Paths.get("./data/schedule_routes.xml");
+			Path passengersFile = Paths.get("./data/schedule_passengers.db");
+			List<Path> sources = Arrays.asList(aircraftFile, crewFile, routesFile, passengersFile);
+			//only the forecasts inside the scheduling horizon are loaded, so the snapshot is named after it
+			LocalDate from = LocalDate.of(2021,2,10);
+			LocalDate to = LocalDate.of(2021, 2, 19);
+			Path snapshot = Paths.get("./data/schedule_" + from + "_" + to + ".snapshot");
 			
-			
-			aircraft.loadAircraftData(Paths.get("./data/schedule_aircraft.csv"));
-			crewMembers.loadCrewData(Paths.get("./data/schedule_crew.json"));
-			pM.loadPassengerNumbersData(Paths.get("./data/schedule_passengers.db"));
-			
-	
-			r.loadRouteData(Paths.get("./data/schedule_routes.xml"));
-			
-		
+			long start = System.nanoTime();
+			if(DataSnapshot.load(snapshot, sources, aircraft, crewMembers, r, pM)) {
+				System.out.printf("Opened %s in %.1f ms%n", snapshot, (System.nanoTime() - start) / 1e6);
+			} else {
+				//the four files share nothing, so they are all loaded at once
+				DataLoader loader = new DataLoader();
+				loader.addAircraftData(aircraft, aircraftFile);
+				loader.addCrewData(crewMembers, crewFile);
+				loader.add("passenger numbers", passengersFile, p -> pM.loadPassengerNumbersData(p, from, to));
+				loader.addRouteData(r, routesFile);
+				try {
+					loader.loadAll();
+				}
+				finally {
+					for(DataLoader.Timing timing : loader.getTimings()) {
+						System.out.println(timing);
+					}
+				}
+				
+				try {
+					DataSnapshot.write(snapshot, sources, aircraft, crewMembers, r, pM);
+				}
+				catch (IOException e) {
+					//the data is loaded, it just has to be parsed again next time
+					System.err.println("Couldn't write " + snapshot + ": " + e);
+				}
+			}
 			
 		
 			//schedular.generateSchedule(aircraft, crewMembers, r, pM, LocalDate.now(), LocalDate.of(2021, 2, 21));
-			System.out.println(schedular.generateSchedule(aircraft, crewMembers, r, pM, LocalDate.of(2021,2,10), LocalDate.of(2021, 2, 19)));
+			System.out.println(schedular.generateSchedule(aircraft, crewMembers, r, pM, from, to));
+			System.out.println(schedular.getLastReport());
+			System.out.println(schedular.getMetrics());
 			
 		}
 		catch (DataLoadingException e) {
-			System.err.println("Error loading aircraft data");
+			System.err.println("Error loading data");
 			e.printStackTrace();
 		}
 	}
@@ -0,0 +1,168 @@
+package solution;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import baseclasses.FlightInfo;
+import baseclasses.IAircraftDAO;
+import baseclasses.ICrewDAO;
+import baseclasses.IPassengerNumbersDAO;
+import baseclasses.IRouteDAO;
+import baseclasses.IScheduler;
+import baseclasses.Schedule;
+
+/**
+ * A scheduler that splits the scheduling horizon into blocks of days and plans the blocks at the same time
+ * on a fork-join pool.
+ *
+ * Flights in different blocks can only compete for the same aircraft or crew where a flight runs over the
+ * end of its block, so each block is planned on its own, as if it had the whole fleet and crew to itself.
+ * The fleet and crew are indexed once and the indexes shared by every block. The plans are then copied into a single
+ * Schedule in date order on one thread. A block's plan can't clash with itself, so only the flights near a block edge
+ * are checked against the Schedule, and the rest are copied straight in. Any planned flight whose aircraft or crew
+ * is already booked by an earlier block is a boundary conflict: it is left out, reported, and allocated again
+ * by a final greedy pass along with any flights the blocks couldn't fill.
+ *
+ * Each block starts with every aircraft at its starting position and nobody having flown, so crew load is balanced
+ * within blocks rather than across the whole horizon.
+ */
+public class ParallelScheduler implements IScheduler {
+
+	private final ForkJoinPool pool;
+	private final int blockDays;
+	private long seed = Scheduler.DEFAULT_SEED;
+
+	//seat utilisation, uncovered flights and boundary conflicts from the most recent call to generateSchedule
+	private SchedulingReport lastReport;
+
+	//time spent in each phase and how the schedule answered, recorded into by every block at once
+	private final SchedulerMetrics metrics = new SchedulerMetrics();
+
+	/**
+	 * Creates a parallel scheduler that plans one day per block on the common fork-join pool
+	 */
+	public ParallelScheduler() {
+		this(ForkJoinPool.commonPool(), 1);
+	}
+
+	/**
+	 * Creates a parallel scheduler
+	 * @param pool the pool to plan the blocks on
+	 * @param blockDays how many days of the horizon go in each block
+	 */
+	public ParallelScheduler(ForkJoinPool pool, int blockDays) {
+		if(blockDays < 1) {
+			throw new IllegalArgumentException("A block must be at least one day, not " + blockDays);
+		}
+		this.pool = pool;
+		this.blockDays = blockDays;
+	}
+
+	/**
+	 * Changes the seed used by later calls to generateSchedule(). Block n is planned with seed + n,
+	 * so the same seed and data always give the same schedule however the blocks are run
+	 * @param seed the new seed
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Returns the report on the schedule most recently generated by this scheduler
+	 * @return the report, or null if no schedule has been generated yet
+	 */
+	public SchedulingReport getLastReport() {
+		return lastReport;
+	}
+
+	/**
+	 * Returns the metrics for every schedule this scheduler has generated
+	 * @return the live metrics, which keep counting until they are reset
+	 */
+	public SchedulerMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Generates a schedule by planning blocks of days in parallel and merging them
+	 * @param aircraftDAO the DAO for the aircraft to be used when scheduling
+	 * @param crewDAO the DAO for the crew to be used when scheduling
+	 * @param routeDAO the DAO to use for routes when scheduling
+	 * @param passengerNumbersDAO the DAO to use for passenger numbers when scheduling
+	 * @param startDate the start of the scheduling horizon
+	 * @param endDate the end of the scheduling horizon
+	 * @return The generated schedule
+	 */
+	@Override
+	public Schedule generateSchedule(IAircraftDAO aircraftDAO, ICrewDAO crewDAO, IRouteDAO routeDAO,
+			IPassengerNumbersDAO passengerNumbersDAO, LocalDate startDate, LocalDate endDate) {
+
+		ScheduleGeneratedEvent event = SchedulerEvents.scheduleGenerated();
+		event.begin();
+		long started = System.nanoTime();
+
+		Schedule schedular = new Schedule(routeDAO, startDate, endDate);
+
+		//split the flights into blocks of days, each in departure order
+		List<FlightInfo> flights = new ArrayList<>(schedular.getRemainingAllocations());
+		flights.sort(Comparator.comparing(FlightInfo::getDepartureDateTime));
+		Map<Long, List<FlightInfo>> blocks = new TreeMap<>();
+		for(FlightInfo flight : flights) {
+			long block = Math.floorDiv(flight.getDepartureDateTime().toLocalDate().toEpochDay() - startDate.toEpochDay(), blockDays);
+			blocks.computeIfAbsent(block, k -> new ArrayList<>()).add(flight);
+		}
+
+		//the fleet and crew are indexed once, and every block and the merge share the indexes
+		SchedulingResources resources = new SchedulingResources(aircraftDAO, crewDAO);
+
+		//plan every block at once. The plans only read the indexes, DAOs and FlightInfos, the schedule isn't touched
+		List<ForkJoinTask<List<Allocation>>> plans = new ArrayList<>();
+		for(Map.Entry<Long, List<FlightInfo>> block : blocks.entrySet()) {
+			long blockSeed = seed + block.getKey();
+			List<FlightInfo> blockFlights = block.getValue();
+			plans.add(pool.submit(() -> {
+				SchedulingRun plan = new SchedulingRun(null, resources, passengerNumbersDAO, blockSeed, metrics);
+				for(FlightInfo flight : blockFlights) {
+					plan.allocate(flight);
+				}
+				return plan.getAllocations();
+			}));
+		}
+
+		//copy the plans into the schedule in date order, anything that clashes or wasn't filled is done again at the end.
+		//A block's plan never clashes with itself, so only the flights at the start of a block that leave before
+		//everything copied from earlier blocks has landed are checked
+		SchedulingRun run = new SchedulingRun(schedular, resources, passengerNumbersDAO, seed, metrics);
+		List<FlightInfo> leftOver = new ArrayList<>();
+		long earlierLanded = Long.MIN_VALUE;//when the last flight copied from an earlier block lands
+		for(ForkJoinTask<List<Allocation>> plan : plans) {
+			long blockLanded = earlierLanded;
+			for(Allocation planned : plan.join()) {
+				if(!planned.complete) {
+					leftOver.add(planned.flight);
+					continue;
+				}
+				if(run.apply(planned, planned.flight, planned.departs < earlierLanded)) {
+					blockLanded = Math.max(blockLanded, planned.lands);
+				} else {
+					run.getReport().recordBoundaryConflict(planned.flight);
+					leftOver.add(planned.flight);
+				}
+			}
+			earlierLanded = blockLanded;
+		}
+		for(FlightInfo flight : leftOver) {
+			run.allocate(flight);
+		}
+
+		lastReport = run.getReport();
+		metrics.scheduled(System.nanoTime() - started, lastReport);
+		event.commit(getClass(), lastReport);
+		return schedular;
+	}
+}
@@ -0,0 +1,165 @@
+package solution;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fetches passenger numbers from an SQLite database one date at a time, the first time a date is asked for,
+ * and keeps the most recently used dates in a bounded cache. This lets a scheduling run read forecasts
+ * from a database covering years without loading any date it doesn't look at.
+ *
+ * The dates fetched so far are published as an immutable map, so looking up a cached date takes no lock and
+ * any number of threads can read at once. Only fetching a missing date is synchronized, as the prepared
+ * statement can only be used by one thread at a time; it publishes a new map with the date added, dropping the
+ * date that has gone longest without being looked up if the cache is full.
+ *
+ * The connection is held open until close() is called. A thread can still be holding the cache when it is closed,
+ * such as a lookup that started before a reload replaced it, so closing doesn't throw away the dates already
+ * cached: they are still answered, and only a date that would have to be fetched comes back as CLOSED.
+ */
+final class PassengerNumbersCache implements AutoCloseable {
+
+	//what get() returns for a date it can no longer fetch, as the cache has been closed
+	static final int CLOSED = Integer.MIN_VALUE;
+
+	private final Connection connection;
+	private final PreparedStatement byDate;
+	private final int maxCachedDates;
+	//the dates fetched so far. Never changed once published, only replaced under the lock
+	private volatile Map<Long, CachedDate> dates = Collections.emptyMap();
+	//counts fetches, and stamps each date looked up with the count at the time, so the least recently used date can be found
+	private volatile long fetches;
+	private int entries;//passenger number entries across all the cached dates
+	private boolean closed;//only read and written under the lock, like the statement it guards
+
+	/**
+	 * A fetched date, and when it was last looked up
+	 */
+	private static final class CachedDate {
+		final LongIntHashMap passengers;
+		//the fetch count when the date was last looked up. Only written when it changes, so
+		//threads reading the same date between fetches don't keep writing to it
+		volatile long lastUsed;
+
+		CachedDate(LongIntHashMap passengers, long lastUsed) {
+			this.passengers = passengers;
+			this.lastUsed = lastUsed;
+		}
+	}
+
+	/**
+	 * Opens the database, ready for dates to be fetched as they are needed
+	 * @param url the JDBC url of the SQLite database
+	 * @param maxCachedDates how many dates to keep before the least recently used one is dropped
+	 * @throws SQLException if the database can't be opened
+	 */
+	PassengerNumbersCache(String url, int maxCachedDates) throws SQLException {
+		if(maxCachedDates < 1) {
+			throw new IllegalArgumentException("At least one date must be cached, not " + maxCachedDates);
+		}
+		this.maxCachedDates = maxCachedDates;
+		connection = DriverManager.getConnection(url);
+		try {
+			byDate = connection.prepareStatement("SELECT FlightNumber, LoadEstimate FROM PassengerNumbers WHERE Date = ?");
+		}
+		catch(SQLException e) {
+			connection.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the predicted number of passengers for a flight, fetching the whole date from the database if it isn't cached
+	 * @param flightNumber the flight number of the flight to check for
+	 * @param epochDay the date of the flight, as a count of days since 1970-01-01
+	 * @return the predicted number of passengers, -1 if no data available, or CLOSED if the date isn't cached and
+	 * the cache has been closed
+	 * @throws IllegalStateException if the database could not be read
+	 */
+	int get(int flightNumber, long epochDay) {
+		CachedDate date = dates.get(epochDay);
+		if(date == null) {
+			date = fetchMissing(epochDay);
+			if(date == null) {
+				return CLOSED;
+			}
+		}
+		else {
+			long now = fetches;
+			if(date.lastUsed != now) {
+				date.lastUsed = now;
+			}
+		}
+		return date.passengers.get(flightNumber, -1);
+	}
+
+	/**
+	 * Returns the number of passenger number entries across all of the currently cached dates
+	 * @return the number of cached entries
+	 */
+	synchronized int size() {
+		return entries;
+	}
+
+	/**
+	 * Closes the database connection. Dates already cached can still be looked up, nothing more is fetched
+	 */
+	@Override
+	public synchronized void close() throws SQLException {
+		if(!closed) {
+			closed = true;
+			connection.close();
+		}
+	}
+
+	/**
+	 * Fetches a date that wasn't cached and publishes it, unless another thread fetched it while this one waited
+	 * @return the date, or null if the cache has been closed
+	 */
+	private synchronized CachedDate fetchMissing(long epochDay) {
+		Map<Long, CachedDate> cached = dates;
+		CachedDate date = cached.get(epochDay);
+		if(date != null || closed) {
+			return date;
+		}
+		try {
+			date = new CachedDate(fetch(epochDay), ++fetches);
+		}
+		catch(SQLException e) {
+			throw new IllegalStateException("Could not read passenger numbers for " + LocalDate.ofEpochDay(epochDay), e);
+		}
+
+		Map<Long, CachedDate> next = new HashMap<>(cached);
+		if(next.size() >= maxCachedDates) {
+			Map.Entry<Long, CachedDate> eldest = null;
+			for(Map.Entry<Long, CachedDate> e : next.entrySet()) {
+				if(eldest == null || e.getValue().lastUsed < eldest.getValue().lastUsed) {
+					eldest = e;
+				}
+			}
+			next.remove(eldest.getKey());
+			entries -= eldest.getValue().passengers.size();
+		}
+		next.put(epochDay, date);
+		entries += date.passengers.size();
+		dates = next;
+		return date;
+	}
+
+	private LongIntHashMap fetch(long epochDay) throws SQLException {
+		LongIntHashMap date = new LongIntHashMap();
+		byDate.setString(1, LocalDate.ofEpochDay(epochDay).toString());
+		try (ResultSet x = byDate.executeQuery()) {
+			while(x.next()) {
+				date.put(x.getInt(1), x.getInt(2));//a single date, so the flight number alone is the key
+			}
+		}
+		return date;
+	}
+}
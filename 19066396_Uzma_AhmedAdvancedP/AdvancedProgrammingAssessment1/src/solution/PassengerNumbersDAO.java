@@ -5,11 +5,11 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.time.DateTimeException;
 import java.time.LocalDate;
-import java.util.HashMap;
 import java.util.List;
 
 import javax.xml.parsers.DocumentBuilder;
@@ -23,11 +23,19 @@ import baseclasses.IPassengerNumbersDAO;
 /**
  * The PassengerNumbersDAO is responsible for loading an SQLite database
  * containing forecasts of passenger numbers for flights on dates
+ *
+ * It is safe to look up passenger numbers from any number of threads while databases are being loaded
  */
 public class PassengerNumbersDAO implements IPassengerNumbersDAO {
-	HashMap<String,Integer> Hashmap=new HashMap<String,Integer>();
-	//create a key out of date and flight number
-	//use get to find the contains. 
+	//forecasts keyed by the date's epoch day in the high 32 bits and the flight number in the low 32 bits, see key().
+	//A map published here is never changed again: loads build a new one and replace it, so lookups need no lock
+	volatile LongIntHashMap passengerNumbers = new LongIntHashMap();
+
+	//when loading on demand, the dates fetched so far. null unless loadPassengerNumbersOnDemand() has been called
+	volatile PassengerNumbersCache onDemand;
+
+	//rows fetched from SQLite per round trip when loading
+	private static final int FETCH_SIZE = 10_000;
 
 	/**
 	 * Returns the number of passenger number entries in the cache
@@ -35,7 +43,12 @@ public class PassengerNumbersDAO implements IPassengerNumbersDAO {
 	 */
 	@Override
 	public int getNumberOfEntries() {
-		return Hashmap.size();
+		int entries = passengerNumbers.size();
+		PassengerNumbersCache cache = onDemand;
+		if(cache != null) {
+			entries += cache.size();
+		}
+		return entries;
 	}
 
 	/**
@@ -46,15 +59,30 @@ public class PassengerNumbersDAO implements IPassengerNumbersDAO {
 	 */
 	@Override
 	public int getPassengerNumbersFor(int flightNumber, LocalDate date) {
-
-		String dateinput= date.toString();
-
-		if(Hashmap.containsKey(dateinput+flightNumber)){//find out if there is a record in the hashmap for key
-			return Hashmap.get(dateinput+flightNumber);
+		long epochDay = date.toEpochDay();
+		int passengers = passengerNumbers.get(key(epochDay, flightNumber), -1);
+		PassengerNumbersCache cache = onDemand;
+		while(passengers < 0 && cache != null) {
+			passengers = cache.get(flightNumber, epochDay);
+			if(passengers != PassengerNumbersCache.CLOSED) {
+				break;
+			}
+			//closed by a reset or another load since it was read, so ask the cache that replaced it, if there is one
+			passengers = -1;
+			PassengerNumbersCache replacement = onDemand;
+			cache = replacement == cache ? null : replacement;
 		}
+		return passengers;
+	}
 
-		return -1;
-
+	/**
+	 * Combines a date and a flight number into the key used for the cache
+	 * @param epochDay the date, as a count of days since 1970-01-01
+	 * @param flightNumber the flight number
+	 * @return the key for that flight on that date
+	 */
+	static long key(long epochDay, int flightNumber) {
+		return (epochDay << 32) | (flightNumber & 0xFFFFFFFFL);
 	}
 
 	/**
@@ -66,48 +94,147 @@ public class PassengerNumbersDAO implements IPassengerNumbersDAO {
 	 */
 	@Override
 	public void loadPassengerNumbersData(Path p) throws DataLoadingException {
+		load(p, "SELECT Date, FlightNumber, LoadEstimate FROM PassengerNumbers");
+	}
 
-		Connection conn=null;
+	/**
+	 * Loads only the passenger numbers for dates inside a window, such as a scheduling horizon, into the cache.
+	 * The window is applied by the database so rows outside it are never read.
+	 * Like loadPassengerNumbersData(Path), multiple calls are additive
+	 * @param p The path of the SQLite database to load data from
+	 * @param startDate the first date to load, inclusive
+	 * @param endDate the last date to load, inclusive
+	 * @throws DataLoadingException If there is a problem loading from the database
+	 */
+	public void loadPassengerNumbersData(Path p, LocalDate startDate, LocalDate endDate) throws DataLoadingException {
+		//dates are stored as ISO text, which sorts in date order, so BETWEEN works on them directly
+		load(p, "SELECT Date, FlightNumber, LoadEstimate FROM PassengerNumbers WHERE Date BETWEEN ? AND ?",
+				startDate.toString(), endDate.toString());
+	}
 
+	/**
+	 * Switches to loading passenger numbers on demand: from now on, any flight not already in the cache is looked up
+	 * by fetching its whole date from the database the first time the date is asked for. Only the most recently
+	 * used dates are kept. The database stays open until reset() is called
+	 * @param p The path of the SQLite database to read from
+	 * @param maxCachedDates how many dates to keep cached at once
+	 * @throws DataLoadingException If the database can't be opened
+	 */
+	public void loadPassengerNumbersOnDemand(Path p, int maxCachedDates) throws DataLoadingException {
 		try {
+			PassengerNumbersCache cache = new PassengerNumbersCache("jdbc:sqlite:" + p.toString(), maxCachedDates);
+			synchronized(this) {
+				//published before the old one is closed, so a lookup that finds the old one closed finds this one
+				PassengerNumbersCache old = onDemand;
+				onDemand = cache;
+				close(old);
+			}
+		}
+		catch (SQLException | IllegalArgumentException e) {
+			throw new DataLoadingException(e);
+		}
+	}
 
-			conn=DriverManager.getConnection("jdbc:sqlite:"+p.toString());
-
-			//run query
-
-			Statement statement=conn.createStatement();
-
-
-			ResultSet x =statement.executeQuery("SELECT * FROM PassengerNumbers");
-			while(x.next()) {
+	/**
+	 * Runs a passenger numbers query, adding every row it returns to the cache
+	 * @param p The path of the SQLite database
+	 * @param sql the query, which must return the Date, FlightNumber and LoadEstimate columns in that order
+	 * @param parameters values for the query's ? placeholders
+	 */
+	private void load(Path p, String sql, String... parameters) throws DataLoadingException {
+		try (Connection conn = DriverManager.getConnection("jdbc:sqlite:"+p.toString());
+				PreparedStatement statement = conn.prepareStatement(sql)) {
 
-				int flightNo=x.getInt("FlightNumber");
-				String date= x.getString("Date");
-				int loadEstimate=x.getInt("LoadEstimate");
-				//load estimate- this what goes in 
-				Hashmap.put(date+flightNo,loadEstimate);
+			for(int i = 0; i < parameters.length; i++) {
+				statement.setString(i + 1, parameters[i]);
 			}
+			statement.setFetchSize(FETCH_SIZE);
 
-			//hashmap stores key and values.
-			//making the key out of both date and flightNo.- key.
-
+			//the rows are read into a map of their own, and only added to the cache once the query is done
+			LongIntHashMap loaded = new LongIntHashMap();
 
+			//run query
+			try (ResultSet x = statement.executeQuery()) {
+				//rows usually arrive grouped by date, so only parse a date when it changes
+				String lastDate = null;
+				long epochDay = 0;
+				while(x.next()) {
+					String date = x.getString(1);
+					int flightNo = x.getInt(2);
+					int loadEstimate = x.getInt(3);
+
+					if(!date.equals(lastDate)) {
+						epochDay = LocalDate.parse(date).toEpochDay();
+						lastDate = date;
+					}
+					//load estimate- this what goes in 
+					loaded.put(key(epochDay, flightNo), loadEstimate);
+				}
+			}
+			finally {
+				//rows read before a failure are kept, as they always have been
+				add(loaded);
+			}
 		}
-		catch (SQLException | NullPointerException | IllegalArgumentException e) {
+		catch (SQLException | NullPointerException | IllegalArgumentException | DateTimeException e) {
 			e.printStackTrace();
 			throw new DataLoadingException(e);
 		}
+	}
 
+	/**
+	 * Adds loaded rows to the cache, replacing any forecasts already cached for the same flights.
+	 * The cache in use is never changed: the first load is published as it is, and later ones are merged into a copy
+	 * @param loaded the rows, which must not be changed afterwards
+	 */
+	synchronized void add(LongIntHashMap loaded) {
+		if(loaded.size() == 0) {
+			return;
+		}
+		if(passengerNumbers.size() == 0) {
+			passengerNumbers = loaded;
+		} else {
+			LongIntHashMap merged = passengerNumbers.copy();
+			merged.putAll(loaded);
+			passengerNumbers = merged;
+		}
+	}
+
+	/**
+	 * Replaces all of the cached forecasts with others, publishing them with one write, so lookups see either
+	 * the old forecasts or the new and never an empty cache in between. Loading on demand is stopped afterwards
+	 * @param loaded the forecasts to hold instead, which must not be changed afterwards
+	 */
+	synchronized void replace(LongIntHashMap loaded) {
+		passengerNumbers = loaded;
+		closeOnDemand();
+	}
 
+	private void closeOnDemand() {
+		PassengerNumbersCache old = onDemand;
+		onDemand = null;
+		close(old);
+	}
+
+	private static void close(PassengerNumbersCache cache) {
+		if(cache != null) {
+			try {
+				cache.close();
+			}
+			catch (SQLException e) {
+				e.printStackTrace();//nothing more can be done with it, it is being thrown away
+			}
+		}
 	}
 
 	/**
 	 * Removes all data from the DAO, ready to start again if needed
+	 * This also closes the database used for loading on demand, if there is one
 	 */
 	@Override
-	public void reset() {
-		Hashmap.clear();
-
+	public synchronized void reset() {
+		passengerNumbers = new LongIntHashMap();
+		closeOnDemand();
 	}
 
 }
@@ -4,28 +4,27 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.DayOfWeek;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.w3c.dom.DOMException;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
-import org.xml.sax.SAXParseException;
 
 import baseclasses.CabinCrew;
 import baseclasses.DataLoadingException;
@@ -36,104 +35,76 @@ import baseclasses.Route;
 /**
  * The RouteDAO parses XML files of route information, each route specifying
  * where the airline flies from, to, and on which day of the week
+ *
+ * It is safe to search from any number of threads while files are being loaded: like AircraftDAO, each load
+ * publishes new Contents with one volatile write, and nothing published is ever changed
  */
 public class RouteDAO implements IRouteDAO {
-	List<Route> routeList=new ArrayList<>();// created a new Array List for routes
+	//everything loaded so far. Loads build new contents and publish them here, so readers never need a lock
+	volatile Contents contents = Contents.EMPTY;
 
 
 
 	/**
 	 * Finds all flights that depart on the specified day of the week
 	 * @param dayOfWeek A three letter day of the week, e.g. "Tue"
-	 * @return A list of all routes that depart on this day
+	 * @return A read-only view of all routes that depart on this day. The day is matched ignoring case
 	 */
 
 	@Override
 	public List<Route> findRoutesByDayOfWeek(String dayOfWeek) {
-		List<Route> newRouteList=new ArrayList<>();
-
-
-
-		for(int i=0;i<routeList.size();i++) {
-			if(routeList.get(i).getDayOfWeek().equals(dayOfWeek)) {
-				newRouteList.add(routeList.get(i));
-			}
+		DayOfWeek day = dayOf(dayOfWeek);
+		if(day == null) {
+			return Collections.emptyList();
 		}
-		return newRouteList;
+		return view(contents.dayIndex.get(day));
 	}
 
 	/**
 	 * Finds all of the flights that depart from a specific airport on a specific day of the week
 	 * @param airportCode the three letter code of the airport to search for, e.g. "MAN"
 	 * @param dayOfWeek the three letter day of the week code to search for, e.g. "Tue"
-	 * @return A list of all routes from that airport on that day
+	 * @return A read-only view of all routes from that airport on that day
 	 */
 	@Override
 	public List<Route> findRoutesByDepartureAirportAndDay(String airportCode, String dayOfWeek) {
-		List<Route> newRouteList=new ArrayList<>();
-
-		for(int i=0;i<routeList.size();i++) {
-			if(routeList.get(i).getDayOfWeek().equals(dayOfWeek) && routeList.get(i).getDepartureAirportCode().equals(airportCode)) {
-				newRouteList.add(routeList.get(i));
-			}
+		DayOfWeek day = dayOf(dayOfWeek);
+		Map<DayOfWeek, List<Route>> airportDays = SymbolTable.get(contents.airportDayIndex, SymbolTable.AIRPORTS.find(airportCode));
+		if(day == null || airportDays == null) {
+			return Collections.emptyList();
 		}
-		return newRouteList;
+		return view(airportDays.get(day));
 	}
 
 	/**
 	 * Finds all of the flights that depart from a specific airport
 	 * @param airportCode the three letter code of the airport to search for, e.g. "MAN"
-	 * @return A list of all of the routes departing the specified airport
+	 * @return A read-only view of all of the routes departing the specified airport
 	 */
 	@Override
 	public List<Route> findRoutesDepartingAirport(String airportCode) {
-		List<Route> newRouteList=new ArrayList<>();
-		for(Route r:routeList) {//for every variable r in routeList array. 
-			if(r.getDepartureAirportCode().equals(airportCode)){//Compare the departure airport code using equals with the input 'airport code'
-				newRouteList.add(r);
-			}
-		}
-
-		return newRouteList;
+		return view(SymbolTable.get(contents.airportIndex, SymbolTable.AIRPORTS.find(airportCode)));
 	}
 
 	/**
 	 * Finds all of the flights that depart on the specified date
 	 * @param date the date to search for
-	 * @return A list of all routes that dpeart on this date
+	 * @return A read-only view of all routes that depart on this date
 	 */
 	@Override
 	public List<Route> findRoutesbyDate(LocalDate date) {
-		List<Route> newRouteList= new ArrayList<>();
-
-
-
-		for(int i=0;i<routeList.size();i++) {
-			String x=date.getDayOfWeek().toString().toUpperCase();//get the day of the week from date, put that into a string convert it to lowercase
-
-			String d=routeList.get(i).getDayOfWeek().toUpperCase();//get the day of the week from xml file convert both to lowercase
-
-
-			if(x.contains(d)) {// if the input starts with the day of the week input from xml. add into the array list.
-				newRouteList.add(routeList.get(i));
-			}
-
-		}
-		return newRouteList;
+		return view(contents.dayIndex.get(date.getDayOfWeek()));
 	}
 
 	/**
 	 * 
 	 * Returns The full list of all currently loaded routes
-	 * @return The full list of all currently loaded routes
+	 * @return A read-only view of all currently loaded routes. Nothing is copied, and the view never changes:
+	 * routes loaded afterwards are only in the lists returned by later calls
 	 */
 	@Override
 	public List<Route> getAllRoutes() {
-		List<Route> loadRoute = new ArrayList<>();
-		for (Route c : routeList) {
-			loadRoute.add(c);
-		}
-		return loadRoute;
+		return contents.allRoutes;
 	}
 
 	/**
@@ -142,7 +113,7 @@ public class RouteDAO implements IRouteDAO {
 	 */
 	@Override
 	public int getNumberOfRoutes() {
-		return routeList.size();
+		return contents.routeList.size();
 	}
 
 	/**
@@ -150,102 +121,248 @@ public class RouteDAO implements IRouteDAO {
 	 * Multiple calls to this function, perhaps on different files, would thus be cumulative
 	 * @param p A Path pointing to the file from which data could be loaded
 	 * @throws DataLoadingException if anything goes wrong. The exception's "cause" indicates the underlying exception
+	 *
+	 * The XML is read with a StAX pull parser in a single forward pass, each Route being filled in from its child
+	 * elements as they are reached, so no document tree is built however many routes the file holds
 	 */
 	@Override
 	public void loadRouteData(Path p) throws DataLoadingException {
+		try (InputStream routesXmlfile = Files.newInputStream(p)) {//this loads the XML file for routes
+			XMLStreamReader xml = XML_INPUT.createXMLStreamReader(routesXmlfile);
+			try {
+				//routes are only added once the whole file has been read, so a bad file doesn't leave half of it loaded
+				List<Route> loaded = new ArrayList<>();
+				Route newR = null;//the route currently being read, null when outside a <Route>
+				int fieldsRead = 0;
+
+				while(xml.hasNext()) {
+					int event = xml.next();
+					if(event == XMLStreamConstants.START_ELEMENT) {
+						String name = xml.getLocalName();
+						if(name.equals("Route")) {
+							newR = new Route();//create a new route class
+							fieldsRead = 0;
+						} else if(newR != null) {
+							fieldsRead |= readField(newR, name, fieldsRead, xml);
+						}
+					} else if(event == XMLStreamConstants.END_ELEMENT && newR != null && xml.getLocalName().equals("Route")) {
+						if(fieldsRead != ALL_FIELDS) {
+							throw new IllegalArgumentException("Route " + loaded.size() + " is missing " + missingFields(fieldsRead));
+						}
+						loaded.add(newR);
+						newR = null;
+					}
+				}
 
+				//the parsing is done without the lock, so several files can be loaded at once
+				add(loaded);
+			}
+			finally {
+				xml.close();
+			}
 
-	
-
-
-
-		try {
-			InputStream routesXmlfile= Files.newInputStream(p);//this loads the XML file for routes
-			//get the document builder
-			DocumentBuilder docBuild = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-
-			Document doc = docBuild.parse(routesXmlfile);//build document
-
-			Element root = doc.getDocumentElement();//extract the root element
-
-
-			NodeList routes=root.getElementsByTagName("Route");
-
-			//run through the nodeList of roots in the XML file
-			for(int i=0;i<routes.getLength();i++) {
-				Route newR= new Route();//create a new route class
-
-				Node list = routes.item(i);
-
-				if(list.getNodeType()==Node.ELEMENT_NODE) {
-					Element elements=(Element)list;
-
-					//get the node flightNo by getting the tag name flight number from the XML file. 
-					Node flightNo= elements.getElementsByTagName("FlightNumber").item(0);
-					Integer flightNo2= Integer.parseInt(flightNo.getTextContent());//convert into Integer format 
-					newR.setFlightNumber(flightNo2);//set the flight number to the newR route class.
+		} catch (XMLStreamException | IllegalArgumentException | DateTimeParseException | IOException | NullPointerException e){
+			throw new DataLoadingException(e);
 
-					//get the day of the week by tag name and get the text content within and convert it to a string. and set the day of week to the new route class
-					Node dayOfWeek= elements.getElementsByTagName("DayOfWeek").item(0);
-					String dayOfWeek2=dayOfWeek.getTextContent();
-					newR.setDayOfWeek(dayOfWeek2);
+		}
 
-					Node departureAirport= elements.getElementsByTagName("DepartureAirport").item(0);
-					String departureAirport2=departureAirport.getTextContent();
-					newR.setDepartureAirport(departureAirport2);
+	}
 
-					Node departureTime= elements.getElementsByTagName("DepartureTime").item(0);
-					LocalTime departureTime2=LocalTime.parse(departureTime.getTextContent());//convert to LocalTime format
-					newR.setDepartureTime(departureTime2);
+	/**
+	 * Adds routes to our list and the indexes, as if they had been loaded from a file
+	 * @param loaded the routes to add
+	 */
+	synchronized void add(List<Route> loaded) {
+		if(!loaded.isEmpty()) {
+			contents = contents.plus(loaded);
+		}
+	}
 
+	/**
+	 * Replaces all of the loaded routes with others, publishing them with one write, so searches see either
+	 * the old routes or the new and never an empty DAO in between
+	 * @param routes the routes to hold instead
+	 */
+	synchronized void replace(List<Route> routes) {
+		contents = new Contents(new ArrayList<>(routes));
+	}
 
-					Node depIATAcode= elements.getElementsByTagName("DepartureAirportIATACode").item(0);
-					String depIATAcode2=depIATAcode.getTextContent();
-					newR.setDepartureAirportCode(depIATAcode2);
+	/**
+	 * The loaded routes and the indexes over them. Nothing in here is changed once it has been built
+	 */
+	static final class Contents {
 
+		static final Contents EMPTY = new Contents(new ArrayList<>());
 
-					Node arrivalAirport= elements.getElementsByTagName("ArrivalAirport").item(0);
-					String arrivalAirport2=arrivalAirport.getTextContent();
-					newR.setArrivalAirport(arrivalAirport2);
+		final List<Route> routeList;
 
-					Node arrivalTime= elements.getElementsByTagName("ArrivalTime").item(0);
-					LocalTime arrivalTime2=LocalTime.parse(arrivalTime.getTextContent());
-					newR.setArrivalTime(arrivalTime2);
+		//indexes over routeList, so the date and day queries don't scan every route or compare strings
+		final Map<DayOfWeek, List<Route>> dayIndex = new EnumMap<>(DayOfWeek.class);
+		//indexed by the SymbolTable.AIRPORTS id of the departure airport
+		final List<Map<DayOfWeek, List<Route>>> airportDayIndex = new ArrayList<>();
+		final List<List<Route>> airportIndex = new ArrayList<>();
+		//handed out by getAllRoutes(), made once rather than on every call
+		final List<Route> allRoutes;
 
-					Node arrIATAcode= elements.getElementsByTagName("ArrivalAirportIATACode").item(0);
-					String arrIATAcode2=arrIATAcode.getTextContent();
-					newR.setArrivalAirportCode(arrIATAcode2);
+		private Contents(List<Route> routeList) {
+			this.routeList = routeList;
+			this.allRoutes = Collections.unmodifiableList(routeList);
+			for(Route r : routeList) {
+				index(r);
+			}
+		}
 
-					Node duration= elements.getElementsByTagName("Duration").item(0);
-					CharSequence duration2= duration.getTextContent();//convert to CharSequence
-					Duration d=Duration.parse(duration2);//parse the Char Sequence duration2 into duration.
-					newR.setDuration(d);
+		/**
+		 * Builds new contents holding these routes followed by more. Loads are rare next to searches, so the
+		 * indexes are simply rebuilt over everything
+		 * @param loaded the routes to add
+		 * @return the new contents
+		 */
+		Contents plus(List<Route> loaded) {
+			List<Route> all = new ArrayList<>(routeList.size() + loaded.size());
+			all.addAll(routeList);// add them into the routeList array list declared at the top.
+			all.addAll(loaded);
+			return new Contents(all);
+		}
 
-					routeList.add(newR);// add it into the routeList array list declared at the top.
+		/**
+		 * Adds a route to the day and airport indexes. Routes whose day of the week isn't recognised
+		 * are still loaded and found by airport, they just never match a day or date
+		 * @param r the route to index
+		 */
+		private void index(Route r) {
+			int airport = SymbolTable.AIRPORTS.id(r.getDepartureAirportCode());
+			if(airport >= 0) {
+				SymbolTable.getOrCreate(airportIndex, airport, ArrayList::new).add(r);
+			}
 
+			DayOfWeek day = dayOf(r.getDayOfWeek());
+			if(day != null) {
+				dayIndex.computeIfAbsent(day, k -> new ArrayList<>()).add(r);
+				if(airport >= 0) {
+					SymbolTable.getOrCreate(airportDayIndex, airport, () -> new EnumMap<>(DayOfWeek.class))
+							.computeIfAbsent(day, k -> new ArrayList<>()).add(r);
 				}
-
 			}
+		}
+	}
 
+	/**
+	 * Works out which day a day of the week code such as "Tue" refers to. Any abbreviation of at least
+	 * three letters, or the full name, is accepted in any case
+	 * @param dayOfWeek the day of the week code
+	 * @return the day, or null if it isn't a day of the week
+	 */
+	static DayOfWeek dayOf(String dayOfWeek) {
+		if(dayOfWeek == null || dayOfWeek.length() < 3) {
+			return null;
+		}
+		String upper = dayOfWeek.toUpperCase(Locale.ROOT);
+		for(DayOfWeek day : DayOfWeek.values()) {
+			if(day.name().startsWith(upper)) {
+				return day;
+			}
+		}
+		return null;
+	}
 
+	/**
+	 * Returns a read-only view of an index bucket, or an empty list if nothing was indexed under that key
+	 * @param bucket the bucket from one of the indexes, possibly null
+	 * @return an unmodifiable view of the bucket
+	 */
+	private static List<Route> view(List<Route> bucket) {
+		if(bucket == null) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(bucket);
+	}
 
+	//the child elements of a <Route>, in the order of the bits used to track which have been read
+	private static final String[] FIELDS = {"FlightNumber", "DayOfWeek", "DepartureAirport", "DepartureTime", "DepartureAirportIATACode",
+			"ArrivalAirport", "ArrivalTime", "ArrivalAirportIATACode", "Duration"};
+	private static final int ALL_FIELDS = (1 << FIELDS.length) - 1;
 
-		} catch (SAXException  |IllegalArgumentException | DateTimeParseException | ParserConfigurationException |  IOException  | DOMException | NullPointerException e){
-			throw new DataLoadingException(e);
+	//StAX factories are thread safe once configured, so one is shared. DTDs are switched off as route files never use them
+	private static final XMLInputFactory XML_INPUT = XMLInputFactory.newInstance();
+	static {
+		XML_INPUT.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		XML_INPUT.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+	}
 
+	/**
+	 * Reads one child element of a route into the route. Like the first match of getElementsByTagName,
+	 * the first occurrence of a field wins if it is repeated, and unknown elements are ignored
+	 * @param newR the route being filled in
+	 * @param name the local name of the element the reader is on
+	 * @param fieldsRead the bits of the fields already read for this route
+	 * @param xml the reader, positioned on the element's start tag
+	 * @return the bit for the field that was read, or 0 if nothing was read
+	 */
+	private static int readField(Route newR, String name, int fieldsRead, XMLStreamReader xml) throws XMLStreamException {
+		int field = -1;
+		for(int i = 0; i < FIELDS.length; i++) {
+			if(FIELDS[i].equals(name)) {
+				field = i;
+				break;
+			}
+		}
+		if(field < 0 || (fieldsRead & (1 << field)) != 0) {
+			return 0;
 		}
 
+		String text = xml.getElementText();
+		switch(field) {
+		case 0:
+			newR.setFlightNumber(Integer.parseInt(text));//convert into Integer format
+			break;
+		case 1:
+			newR.setDayOfWeek(text);
+			break;
+		case 2:
+			newR.setDepartureAirport(text);
+			break;
+		case 3:
+			newR.setDepartureTime(LocalTime.parse(text));//convert to LocalTime format
+			break;
+		case 4:
+			newR.setDepartureAirportCode(SymbolTable.AIRPORTS.intern(text));//one shared String for each airport code
+			break;
+		case 5:
+			newR.setArrivalAirport(text);
+			break;
+		case 6:
+			newR.setArrivalTime(LocalTime.parse(text));
+			break;
+		case 7:
+			newR.setArrivalAirportCode(SymbolTable.AIRPORTS.intern(text));
+			break;
+		default:
+			newR.setDuration(Duration.parse(text));//parse the text into a duration
+			break;
+		}
+		return 1 << field;
+	}
 
-
-
+	/**
+	 * Lists the names of the fields a route didn't have, for the error message
+	 */
+	private static String missingFields(int fieldsRead) {
+		List<String> missing = new ArrayList<>();
+		for(int i = 0; i < FIELDS.length; i++) {
+			if((fieldsRead & (1 << i)) == 0) {
+				missing.add(FIELDS[i]);
+			}
+		}
+		return String.join(", ", missing);
 	}
 
 	/**
 	 * Unloads all of the crew currently loaded, ready to start again if needed
 	 */
 	@Override
-	public void reset() {
-		routeList.clear();
+	public synchronized void reset() {
+		contents = Contents.EMPTY;
 	}
 
 
@@ -0,0 +1,205 @@
+package solution;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import baseclasses.IAircraftDAO;
+import baseclasses.ICrewDAO;
+import baseclasses.IPassengerNumbersDAO;
+import baseclasses.IRouteDAO;
+import baseclasses.Schedule;
+
+/**
+ * Runs several seeded schedulers over the same loaded data at the same time and keeps the best schedule.
+ *
+ * Every attempt has its own Scheduler, and the DAOs are only read while scheduling: the scheduler works on
+ * its own copies of the aircraft and crew lists, so one set of loaded DAOs can be shared by all the attempts.
+ * The DAOs must not be reloaded while a run is in progress.
+ *
+ * Schedules are scored on the number of completed allocations, then on the fewest empty seats plus passengers
+ * without a seat, then on the lowest seed, so the same seeds and data always pick the same schedule.
+ */
+public class ScenarioRunner {
+
+	/**
+	 * Puts the better outcome first
+	 */
+	static final Comparator<Outcome> BEST_FIRST = Comparator.comparingInt(Outcome::getCompleted).reversed()
+			.thenComparingLong(Outcome::getSeatMismatch)
+			.thenComparingLong(Outcome::getSeed);
+
+	private final int threads;
+	private Duration timeBudget;
+
+	/**
+	 * Creates a runner that runs as many attempts at once as there are processors
+	 */
+	public ScenarioRunner() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a runner
+	 * @param threads the most attempts to run at once
+	 */
+	public ScenarioRunner(int threads) {
+		if(threads < 1) {
+			throw new IllegalArgumentException("At least one thread is needed, not " + threads);
+		}
+		this.threads = threads;
+	}
+
+	/**
+	 * Sets the time budget each attempt's scheduler is given, see Scheduler.setTimeBudget()
+	 * @param timeBudget the time budget for each attempt, or null for a single greedy pass
+	 */
+	public void setTimeBudget(Duration timeBudget) {
+		this.timeBudget = timeBudget;
+	}
+
+	/**
+	 * Generates a schedule for each of a run of seeds and returns the best
+	 * @param aircraftDAO the DAO for the aircraft to be used when scheduling
+	 * @param crewDAO the DAO for the crew to be used when scheduling
+	 * @param routeDAO the DAO to use for routes when scheduling
+	 * @param passengerNumbersDAO the DAO to use for passenger numbers when scheduling
+	 * @param startDate the start of the scheduling horizon
+	 * @param endDate the end of the scheduling horizon
+	 * @param attempts the number of schedules to generate
+	 * @param firstSeed the seed of the first attempt, the others use the seeds after it
+	 * @return the best of the attempts
+	 */
+	public Outcome run(IAircraftDAO aircraftDAO, ICrewDAO crewDAO, IRouteDAO routeDAO, IPassengerNumbersDAO passengerNumbersDAO,
+			LocalDate startDate, LocalDate endDate, int attempts, long firstSeed) {
+		return runAll(aircraftDAO, crewDAO, routeDAO, passengerNumbersDAO, startDate, endDate, attempts, firstSeed).get(0);
+	}
+
+	/**
+	 * Generates a schedule for each of a run of seeds
+	 * @param aircraftDAO the DAO for the aircraft to be used when scheduling
+	 * @param crewDAO the DAO for the crew to be used when scheduling
+	 * @param routeDAO the DAO to use for routes when scheduling
+	 * @param passengerNumbersDAO the DAO to use for passenger numbers when scheduling
+	 * @param startDate the start of the scheduling horizon
+	 * @param endDate the end of the scheduling horizon
+	 * @param attempts the number of schedules to generate
+	 * @param firstSeed the seed of the first attempt, the others use the seeds after it
+	 * @return every attempt, best first
+	 */
+	public List<Outcome> runAll(IAircraftDAO aircraftDAO, ICrewDAO crewDAO, IRouteDAO routeDAO, IPassengerNumbersDAO passengerNumbersDAO,
+			LocalDate startDate, LocalDate endDate, int attempts, long firstSeed) {
+		if(attempts < 1) {
+			throw new IllegalArgumentException("At least one attempt is needed, not " + attempts);
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, attempts));
+		try {
+			List<Future<Outcome>> futures = new ArrayList<>();
+			for(int i = 0; i < attempts; i++) {
+				long seed = firstSeed + i;
+				futures.add(pool.submit(() -> {
+					Scheduler scheduler = new Scheduler(seed);
+					scheduler.setTimeBudget(timeBudget);
+					Schedule schedule = scheduler.generateSchedule(aircraftDAO, crewDAO, routeDAO, passengerNumbersDAO, startDate, endDate);
+					return new Outcome(seed, schedule, scheduler.getLastReport());
+				}));
+			}
+
+			List<Outcome> outcomes = new ArrayList<>();
+			for(Future<Outcome> future : futures) {
+				outcomes.add(future.get());
+			}
+			outcomes.sort(BEST_FIRST);
+			return outcomes;
+		}
+		catch(ExecutionException e) {
+			throw new IllegalStateException("A scheduling attempt failed", e.getCause());
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the scheduling attempts", e);
+		}
+		finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * One scheduling attempt and how it scored
+	 */
+	public static class Outcome {
+
+		private final long seed;
+		private final Schedule schedule;
+		private final SchedulingReport report;
+		private final int completed;
+
+		Outcome(long seed, Schedule schedule, SchedulingReport report) {
+			this.seed = seed;
+			this.schedule = schedule;
+			this.report = report;
+			this.completed = schedule.getCompletedAllocations().size();
+		}
+
+		/**
+		 * Returns the seed the schedule was generated with
+		 * @return the seed
+		 */
+		public long getSeed() {
+			return seed;
+		}
+
+		/**
+		 * Returns the schedule
+		 * @return the schedule
+		 */
+		public Schedule getSchedule() {
+			return schedule;
+		}
+
+		/**
+		 * Returns the report on the schedule
+		 * @return the report
+		 */
+		public SchedulingReport getReport() {
+			return report;
+		}
+
+		/**
+		 * Returns the number of completed allocations in the schedule
+		 * @return the number of completed allocations
+		 */
+		public int getCompleted() {
+			return completed;
+		}
+
+		/**
+		 * Returns the seats expected to be empty over the flights with a passenger forecast, the unused capacity
+		 * @return the number of empty seats, counted flight by flight
+		 */
+		public long getEmptySeats() {
+			return report.getEmptySeats();
+		}
+
+		/**
+		 * Returns how badly the aircraft fit the forecasts: the empty seats plus the passengers an undersized
+		 * aircraft has no seat for. An undersized flight is a penalty here, never a credit against the empty seats
+		 * @return the empty seats plus the passengers without a seat
+		 */
+		public long getSeatMismatch() {
+			return report.getEmptySeats() + report.getUnseatedPassengers();
+		}
+
+		@Override
+		public String toString() {
+			return "seed " + seed + ": " + completed + " completed, " + getEmptySeats() + " empty seats, "
+					+ report.getUnseatedPassengers() + " passengers without a seat";
+		}
+	}
+}
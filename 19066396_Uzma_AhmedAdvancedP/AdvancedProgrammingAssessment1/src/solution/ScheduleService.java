@@ -0,0 +1,421 @@
+package solution;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import baseclasses.Aircraft;
+import baseclasses.DataLoadingException;
+import baseclasses.FlightInfo;
+import baseclasses.IAircraftDAO;
+import baseclasses.ICrewDAO;
+import baseclasses.IPassengerNumbersDAO;
+import baseclasses.IRouteDAO;
+import baseclasses.Schedule;
+
+/**
+ * A scheduling service that keeps the DAOs loaded and answers schedule requests for any horizon over HTTP.
+ *
+ * GET /schedule?from=2021-02-10&amp;to=2021-02-19 generates a schedule and returns it with its report as JSON.
+ * A seed can be given with seed=, and a time budget in milliseconds with budgetMillis=.
+ * GET /health returns how busy the service is.
+ *
+ * Every request gets its own Scheduler, and the DAOs are only read while scheduling, so the loaded DAOs are
+ * shared by all the requests. Each request takes the DataSet in use when it starts and keeps it to the end, so
+ * with a DataReloader as the supplier the data files can be changed while the service is running.
+ *
+ * Requests are run on a fixed pool of worker threads. Only so many may be running or waiting at once: past that
+ * the service answers 503 Service Unavailable straight away, rather than queueing work it won't get to in time.
+ */
+public class ScheduleService {
+
+	//the longest horizon and time budget a request may ask for
+	static final int MAX_HORIZON_DAYS = 366;
+	static final Duration MAX_TIME_BUDGET = Duration.ofMinutes(2);
+
+	private final Supplier<DataSet> data;
+
+	private final int threads;
+	private final int queueLength;
+	//a permit for every request running or waiting for a worker
+	private final Semaphore admitted;
+
+	private final AtomicInteger running = new AtomicInteger();
+	private final LongAdder served = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+
+	private volatile Duration timeBudget;
+
+	private HttpServer server;
+	//read by the server's thread without the lock, null once the service is stopped
+	private volatile ExecutorService workers;
+
+	/**
+	 * Creates a service with a worker for each processor, and room for four requests per worker to wait
+	 * @param aircraftDAO the loaded aircraft
+	 * @param crewDAO the loaded crew
+	 * @param routeDAO the loaded routes
+	 * @param passengerNumbersDAO the loaded passenger numbers
+	 */
+	public ScheduleService(IAircraftDAO aircraftDAO, ICrewDAO crewDAO, IRouteDAO routeDAO, IPassengerNumbersDAO passengerNumbersDAO) {
+		this(fixed(new DataSet(aircraftDAO, crewDAO, routeDAO, passengerNumbersDAO)));
+	}
+
+	/**
+	 * Creates a service with a worker for each processor, and room for four requests per worker to wait
+	 * @param data supplies the data for each request, such as a DataReloader
+	 */
+	public ScheduleService(Supplier<DataSet> data) {
+		this(data, Runtime.getRuntime().availableProcessors(), 4 * Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a service
+	 * @param aircraftDAO the loaded aircraft
+	 * @param crewDAO the loaded crew
+	 * @param routeDAO the loaded routes
+	 * @param passengerNumbersDAO the loaded passenger numbers
+	 * @param threads the most schedules to generate at once
+	 * @param queueLength the most requests to keep waiting for a worker, beyond which requests are turned away
+	 */
+	public ScheduleService(IAircraftDAO aircraftDAO, ICrewDAO crewDAO, IRouteDAO routeDAO, IPassengerNumbersDAO passengerNumbersDAO,
+			int threads, int queueLength) {
+		this(fixed(new DataSet(aircraftDAO, crewDAO, routeDAO, passengerNumbersDAO)), threads, queueLength);
+	}
+
+	/**
+	 * Creates a service
+	 * @param data supplies the data for each request, such as a DataReloader
+	 * @param threads the most schedules to generate at once
+	 * @param queueLength the most requests to keep waiting for a worker, beyond which requests are turned away
+	 */
+	public ScheduleService(Supplier<DataSet> data, int threads, int queueLength) {
+		if(threads < 1) {
+			throw new IllegalArgumentException("At least one thread is needed, not " + threads);
+		}
+		if(queueLength < 0) {
+			throw new IllegalArgumentException("The queue length can't be negative: " + queueLength);
+		}
+		this.data = data;
+		this.threads = threads;
+		this.queueLength = queueLength;
+		this.admitted = new Semaphore(threads + queueLength);
+	}
+
+	private static Supplier<DataSet> fixed(DataSet data) {
+		return () -> data;
+	}
+
+	/**
+	 * Sets the time budget used for requests that don't give one, see Scheduler.setTimeBudget()
+	 * @param timeBudget the time budget, or null for a single greedy pass
+	 */
+	public void setTimeBudget(Duration timeBudget) {
+		this.timeBudget = timeBudget;
+	}
+
+	/**
+	 * Starts answering requests
+	 * @param address the address to listen on, port 0 picks a free port
+	 * @throws IOException if the address can't be listened on
+	 * @throws IllegalStateException if the service is already running
+	 */
+	public synchronized void start(InetSocketAddress address) throws IOException {
+		if(server != null) {
+			throw new IllegalStateException("The service is already running on " + server.getAddress());
+		}
+		HttpServer created = HttpServer.create(address, 0);
+		created.createContext("/schedule", this::schedule);
+		created.createContext("/health", this::health);
+		//the server's own thread only reads the request and hands it on, so it is free to turn requests away when busy
+		created.setExecutor(null);
+
+		AtomicInteger workerNumber = new AtomicInteger();
+		workers = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "schedule-worker-" + workerNumber.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+		created.start();
+		server = created;
+	}
+
+	/**
+	 * Stops answering requests, giving those already running a while to finish
+	 * @param delaySeconds the most seconds to wait for running requests
+	 */
+	public synchronized void stop(int delaySeconds) {
+		if(server == null) {
+			return;
+		}
+		server.stop(delaySeconds);
+		workers.shutdownNow();
+		server = null;
+		workers = null;
+	}
+
+	/**
+	 * Returns the address the service is listening on
+	 * @return the address, or null if it isn't running
+	 */
+	public synchronized InetSocketAddress getAddress() {
+		return server == null ? null : server.getAddress();
+	}
+
+	/**
+	 * Answers GET /schedule
+	 */
+	private void schedule(HttpExchange exchange) throws IOException {
+		if(!exchange.getRequestMethod().equals("GET")) {
+			exchange.getResponseHeaders().set("Allow", "GET");
+			respond(exchange, 405, error("Only GET is supported"));
+			return;
+		}
+
+		LocalDate from;
+		LocalDate to;
+		long seed;
+		Duration budget;
+		try {
+			Map<String, String> query = query(exchange);
+			from = LocalDate.parse(required(query, "from"));
+			to = LocalDate.parse(required(query, "to"));
+			long days = ChronoUnit.DAYS.between(from, to) + 1;
+			if(days < 1 || days > MAX_HORIZON_DAYS) {
+				throw new IllegalArgumentException("The horizon must be from 1 to " + MAX_HORIZON_DAYS + " days, not " + days);
+			}
+			seed = query.containsKey("seed") ? Long.parseLong(query.get("seed")) : Scheduler.DEFAULT_SEED;
+			budget = query.containsKey("budgetMillis") ? Duration.ofMillis(Long.parseLong(query.get("budgetMillis"))) : timeBudget;
+			if(budget != null && (budget.isNegative() || budget.compareTo(MAX_TIME_BUDGET) > 0)) {
+				throw new IllegalArgumentException("The time budget must be from 0 to " + MAX_TIME_BUDGET.toMillis() + " ms");
+			}
+		}
+		catch(IllegalArgumentException | DateTimeParseException e) {
+			respond(exchange, 400, error(e.getMessage()));
+			return;
+		}
+
+		if(!admitted.tryAcquire()) {
+			rejected.increment();
+			exchange.getResponseHeaders().set("Retry-After", "1");
+			respond(exchange, 503, error("Too many schedules are being generated, try again shortly"));
+			return;
+		}
+		ExecutorService pool = workers;
+		try {
+			if(pool == null) {
+				throw new RejectedExecutionException();
+			}
+			pool.execute(() -> {
+				try {
+					generate(exchange, from, to, seed, budget);
+				}
+				finally {
+					admitted.release();
+				}
+			});
+		}
+		catch(RejectedExecutionException e) {
+			//the service was stopped after the request arrived
+			admitted.release();
+			respond(exchange, 503, error("The service is stopping"));
+		}
+	}
+
+	/**
+	 * Generates a schedule on a worker thread and sends it back
+	 */
+	private void generate(HttpExchange exchange, LocalDate from, LocalDate to, long seed, Duration budget) {
+		running.incrementAndGet();
+		try {
+			long started = System.nanoTime();
+			//taken once, so a reload part way through doesn't mix old and new data in one schedule
+			DataSet d = data.get();
+			Scheduler scheduler = new Scheduler(seed);
+			scheduler.setTimeBudget(budget);
+			Schedule schedule = scheduler.generateSchedule(d.getAircraftDAO(), d.getCrewDAO(), d.getRouteDAO(), d.getPassengerNumbersDAO(), from, to);
+			JSONObject body = toJson(schedule, scheduler.getLastReport());
+			body.put("from", from.toString());
+			body.put("to", to.toString());
+			body.put("seed", seed);
+			body.put("dataVersion", d.getVersion());
+			body.put("millis", (System.nanoTime() - started) / 1_000_000);
+			respond(exchange, 200, body);
+			served.increment();
+		}
+		catch(IOException e) {
+			failed.increment();//the client has gone, there is no one left to tell
+		}
+		catch(RuntimeException e) {
+			failed.increment();
+			try {
+				respond(exchange, 500, error(e.toString()));
+			}
+			catch(IOException ignored) {
+				//the client has gone
+			}
+		}
+		finally {
+			running.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Answers GET /health
+	 */
+	private void health(HttpExchange exchange) throws IOException {
+		JSONObject body = new JSONObject();
+		body.put("status", "ok");
+		body.put("dataVersion", data.get().getVersion());
+		body.put("running", running.get());
+		body.put("waiting", Math.max(0, threads + queueLength - admitted.availablePermits() - running.get()));
+		body.put("served", served.sum());
+		body.put("rejected", rejected.sum());
+		body.put("failed", failed.sum());
+		respond(exchange, 200, body);
+	}
+
+	/**
+	 * Turns a schedule and its report into the JSON sent back
+	 */
+	static JSONObject toJson(Schedule schedule, SchedulingReport report) {
+		JSONObject body = new JSONObject();
+		body.put("flights", report.getFlights());
+		body.put("seatUtilisation", report.getSeatUtilisation());
+		body.put("undersizedFlights", report.getUndersizedFlights());
+
+		JSONArray completed = new JSONArray();
+		for(FlightInfo flight : schedule.getCompletedAllocations()) {
+			JSONObject f = flight(flight);
+			Aircraft aircraft = schedule.getAircraftFor(flight);
+			f.put("aircraft", aircraft == null ? null : aircraft.getTailCode());
+			completed.put(f);
+		}
+		body.put("completed", completed);
+
+		JSONArray uncovered = new JSONArray();
+		for(FlightInfo flight : report.getUncoveredFlights()) {
+			uncovered.put(flight(flight));
+		}
+		body.put("uncovered", uncovered);
+		return body;
+	}
+
+	private static JSONObject flight(FlightInfo flight) {
+		JSONObject f = new JSONObject();
+		f.put("flightNumber", flight.getFlight().getFlightNumber());
+		f.put("departure", flight.getDepartureDateTime().toString());
+		return f;
+	}
+
+	private static JSONObject error(String message) {
+		JSONObject body = new JSONObject();
+		body.put("error", message);
+		return body;
+	}
+
+	private static void respond(HttpExchange exchange, int status, JSONObject body) throws IOException {
+		byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	/**
+	 * Splits the query string of a request into its parameters. If a parameter is repeated the last one wins
+	 */
+	private static Map<String, String> query(HttpExchange exchange) throws IOException {
+		Map<String, String> parameters = new HashMap<>();
+		String raw = exchange.getRequestURI().getRawQuery();
+		if(raw == null || raw.isEmpty()) {
+			return parameters;
+		}
+		for(String pair : raw.split("&")) {
+			int equals = pair.indexOf('=');
+			String name = equals < 0 ? pair : pair.substring(0, equals);
+			String value = equals < 0 ? "" : pair.substring(equals + 1);
+			parameters.put(URLDecoder.decode(name, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+		}
+		return parameters;
+	}
+
+	private static String required(Map<String, String> query, String name) {
+		String value = query.get(name);
+		if(value == null || value.isEmpty()) {
+			throw new IllegalArgumentException("The " + name + " parameter is required");
+		}
+		return value;
+	}
+
+	/**
+	 * Loads the data files, from a snapshot if there is a current one, and runs the service until the process is stopped.
+	 * Any of the files that changes while it is running is reloaded.
+	 *
+	 * Usage: ScheduleService [port] [data directory]
+	 * The data directory must hold schedule_aircraft.csv, schedule_crew.json, schedule_routes.xml and schedule_passengers.db
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+		Path data = Paths.get(args.length > 1 ? args[1] : "./data");
+
+		AircraftDAO aircraft = new AircraftDAO();
+		CrewDAO crew = new CrewDAO();
+		RouteDAO routes = new RouteDAO();
+		PassengerNumbersDAO passengers = new PassengerNumbersDAO();
+		List<Path> sources = Arrays.asList(data.resolve("schedule_aircraft.csv"), data.resolve("schedule_crew.json"),
+				data.resolve("schedule_routes.xml"), data.resolve("schedule_passengers.db"));
+		//requests can be for any horizon, so every passenger forecast is loaded
+		Path snapshot = data.resolve("schedule_all.snapshot");
+
+		try {
+			if(!DataSnapshot.load(snapshot, sources, aircraft, crew, routes, passengers)) {
+				DataLoader loader = new DataLoader();
+				loader.addAircraftData(aircraft, sources.get(0));
+				loader.addCrewData(crew, sources.get(1));
+				loader.addRouteData(routes, sources.get(2));
+				loader.addPassengerNumbersData(passengers, sources.get(3));
+				loader.loadAll();
+				DataSnapshot.write(snapshot, sources, aircraft, crew, routes, passengers);
+			}
+		}
+		catch(DataLoadingException e) {
+			System.err.println("Error loading data");
+			e.printStackTrace();
+			return;
+		}
+
+		DataReloader reloader = new DataReloader(new DataSet(aircraft, crew, routes, passengers),
+				sources.get(0), sources.get(1), sources.get(2), sources.get(3));
+		reloader.start();
+		ScheduleService service = new ScheduleService(reloader);
+		service.start(new InetSocketAddress(port));
+		System.out.println("Scheduling service listening on " + service.getAddress());
+	}
+}
@@ -0,0 +1,60 @@
+package solution;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import baseclasses.IPassengerNumbersDAO;
+import baseclasses.IRouteDAO;
+import baseclasses.Schedule;
+
+/**
+ * A schedule made by a Scheduler, together with what it was made from and the aircraft and crew each of its
+ * flights was given, so that it can be repaired by Scheduler.reschedule() when some of them become unavailable.
+ *
+ * Nothing in here is changed once it has been made. Rescheduling returns a new ScheduledHorizon and leaves the
+ * one it was given as it was, so a horizon can be kept, shared between threads and rescheduled more than once.
+ */
+public final class ScheduledHorizon {
+
+	final IRouteDAO routeDAO;
+	final IPassengerNumbersDAO passengerNumbersDAO;
+	final LocalDate startDate;
+	final LocalDate endDate;
+	//the indexed aircraft and crew, reused so a reschedule doesn't index them again
+	final SchedulingResources resources;
+	//the aircraft and crew taken out so far, compared by identity. Read-only
+	final Set<Object> unavailable;
+	//the allocation made for each flight. Read-only
+	final List<Allocation> allocations;
+	private final Schedule schedule;
+	private final SchedulingReport report;
+
+	ScheduledHorizon(IRouteDAO routeDAO, IPassengerNumbersDAO passengerNumbersDAO, LocalDate startDate, LocalDate endDate,
+			SchedulingResources resources, Set<Object> unavailable, Schedule schedule, SchedulingRun run) {
+		this.routeDAO = routeDAO;
+		this.passengerNumbersDAO = passengerNumbersDAO;
+		this.startDate = startDate;
+		this.endDate = endDate;
+		this.resources = resources;
+		this.unavailable = unavailable;
+		this.schedule = schedule;
+		this.allocations = run.getAllocations();
+		this.report = run.getReport();
+	}
+
+	/**
+	 * Returns the schedule
+	 * @return the schedule, whose allocations are the ones made for this horizon
+	 */
+	public Schedule getSchedule() {
+		return schedule;
+	}
+
+	/**
+	 * Returns the report on the schedule
+	 * @return the report, listing the flights that were allocated again if this horizon came from reschedule()
+	 */
+	public SchedulingReport getReport() {
+		return report;
+	}
+}
@@ -1,22 +1,23 @@
 package solution;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
+import java.util.Set;
 
 import baseclasses.Aircraft;
-import baseclasses.CabinCrew;
 import baseclasses.Crew;
-import baseclasses.DoubleBookedException;
 import baseclasses.FlightInfo;
 import baseclasses.IAircraftDAO;
 import baseclasses.ICrewDAO;
 import baseclasses.IPassengerNumbersDAO;
 import baseclasses.IRouteDAO;
 import baseclasses.IScheduler;
-import baseclasses.InvalidAllocationException;
-import baseclasses.Pilot;
 import baseclasses.Schedule;
 
 /**
@@ -28,6 +29,72 @@ import baseclasses.Schedule;
  */
 public class Scheduler implements IScheduler {
 
+	//the seed used unless another is given, so that two runs over the same data give the same schedule
+	public static final long DEFAULT_SEED = 1L;
+
+	//decides the order crew are tried in when they have flown the same amount
+	private long seed;
+
+	//how long generateSchedule may take in all, null for a single greedy pass with no improvement phase
+	private Duration timeBudget;
+
+	//seat utilisation and uncovered flights from the most recent call to generateSchedule
+	private volatile SchedulingReport lastReport;
+
+	//time spent in each phase and how the schedule answered, over every schedule this scheduler generates
+	private final SchedulerMetrics metrics = new SchedulerMetrics();
+
+	/**
+	 * Creates a scheduler using DEFAULT_SEED
+	 */
+	public Scheduler() {
+		this(DEFAULT_SEED);
+	}
+
+	/**
+	 * Creates a scheduler whose crew rotation is seeded from the given seed
+	 * @param seed the seed, the same seed and data always give the same schedule
+	 */
+	public Scheduler(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Changes the seed used by later calls to generateSchedule()
+	 * @param seed the new seed
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Returns the metrics for every schedule this scheduler has generated or rescheduled
+	 * @return the live metrics, which keep counting until they are reset
+	 */
+	public SchedulerMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Sets how long later calls to generateSchedule() may take. Whatever the greedy pass leaves of the budget is spent
+	 * on a local search that fills uncovered flights and evens out how much each crew member flies, stopping with
+	 * the best schedule found when the time is up
+	 * @param timeBudget the time allowed for each call, or null to only make the greedy pass
+	 */
+	public void setTimeBudget(Duration timeBudget) {
+		if(timeBudget != null && timeBudget.isNegative()) {
+			throw new IllegalArgumentException("The time budget can't be negative: " + timeBudget);
+		}
+		this.timeBudget = timeBudget;
+	}
+
+	/**
+	 * Returns the report on the schedule most recently generated by this scheduler
+	 * @return the report, or null if no schedule has been generated yet
+	 */
+	public SchedulingReport getLastReport() {
+		return lastReport;
+	}
 
 	/**
 	 * Generates a schedule, providing you with ready-loaded DAO objects to get your data from
@@ -38,115 +105,181 @@ public class Scheduler implements IScheduler {
 	 * @param startDate the start of the scheduling horizon
 	 * @param endDate the end of the scheduling horizon
 	 * @return The generated schedule - which must happen inside 2 minutes
+	 *
+	 * Crew are picked least used first: each flight gets the free pilots and cabin crew who have flown the fewest
+	 * minutes so far in this run, with ties broken in an order fixed by the seed.
+	 * Aircraft are sized to the passenger forecast: the smallest free aircraft with enough seats, preferring one
+	 * already at the departure airport. See getLastReport() for how well the seats were used.
+	 * Pilots and cabin crew are only given flights on aircraft types they are rated for.
+	 * With a time budget set, the greedy pass only plans, the plan is improved by LocalSearch until the budget
+	 * runs out, and then it is copied into the schedule
 	 */
 
 	@Override
 	public Schedule generateSchedule(IAircraftDAO aircraftDAO, ICrewDAO crewDAO, IRouteDAO routeDAO, 
 			IPassengerNumbersDAO passengerNumbersDAO, LocalDate startDate, LocalDate endDate) {
+		return generateHorizon(aircraftDAO, crewDAO, routeDAO, passengerNumbersDAO, startDate, endDate).getSchedule();
+	}
 
-		System.currentTimeMillis();
-
-		Schedule schedular = new Schedule(routeDAO, startDate, endDate);//Schedule object for the specified routes and date range
-		List<Aircraft> plane = aircraftDAO.getAllAircraft();
-
-		List<CabinCrew> cabincrew= crewDAO.getAllCabinCrew();
+	/**
+	 * Generates a schedule in the same way as generateSchedule(), keeping the allocations it made so that it can be
+	 * repaired by reschedule()
+	 * @param aircraftDAO the DAO for the aircraft to be used when scheduling
+	 * @param crewDAO the DAO for the crew to be used when scheduling
+	 * @param routeDAO the DAO to use for routes when scheduling
+	 * @param passengerNumbersDAO the DAO to use for passenger numbers when scheduling
+	 * @param startDate the start of the scheduling horizon
+	 * @param endDate the end of the scheduling horizon
+	 * @return the schedule, its allocations and its report
+	 */
+	public ScheduledHorizon generateHorizon(IAircraftDAO aircraftDAO, ICrewDAO crewDAO, IRouteDAO routeDAO,
+			IPassengerNumbersDAO passengerNumbersDAO, LocalDate startDate, LocalDate endDate) {
 
-		List<Pilot> pilotList= crewDAO.getAllPilots();
+		ScheduleGeneratedEvent event = SchedulerEvents.scheduleGenerated();
+		event.begin();
+		long started = System.nanoTime();
 
+		Schedule schedular = new Schedule(routeDAO, startDate, endDate);//Schedule object for the specified routes and date range
 		List<FlightInfo> info=schedular.getRemainingAllocations();
 		//flight info objects are added to a list of flights
 
+		SchedulingResources resources = new SchedulingResources(aircraftDAO, crewDAO);
+		SchedulingRun run;
+		if(timeBudget == null) {
+			run = new SchedulingRun(schedular, resources, passengerNumbersDAO, seed, metrics);
+			for(FlightInfo flights: info) {//for every flight
+				run.allocate(flights);
+			}
+		} else {
+			run = improve(resources, passengerNumbersDAO, schedular, new ArrayList<>(info), started + timeBudget.toNanos());
+		}
+		lastReport = run.getReport();
+		metrics.scheduled(System.nanoTime() - started, lastReport);
+		event.commit(getClass(), lastReport);
+		return new ScheduledHorizon(routeDAO, passengerNumbersDAO, startDate, endDate, resources, Collections.emptySet(), schedular, run);
 
-		System.out.println(info.size()+" want ");
-
-		for(FlightInfo flights: info) {//for every flight
-			Collections.shuffle(pilotList);
-
-			Collections.shuffle(cabincrew);
-
-			try{
-
-				for(int i =0;i<plane.size();i++) {//for loop through the aircrafts
-
-					if(!(schedular.hasConflict(plane.get(i), flights))) {//if it doesnt have conflict, allocate the  1 aircraft to the flight
-						schedular.allocateAircraftTo(plane.get(i), flights);
-						break;
-					}
-				}
-				try {
-					boolean captainFound=false;// a boolean to check if the captain is found
-
-					for(int z=0;z<pilotList.size();z++) {//for loop through the full pilots list
-
-						// if any pilot free and doesnt have conflict
-						if(!(schedular.hasConflict(pilotList.get(z), flights))){
-							if(captainFound==false) {//if the captain isnt found yet, allocate a captain then change captainFound as to be true.
-								schedular.allocateCaptainTo(pilotList.get(z), flights);
-								captainFound=true;
-							}else {// allocate the first officer.
-								schedular.allocateFirstOfficerTo(pilotList.get(z), flights);
-								break;// only do 1 
-							}
-
-						}
-
-					}
-
-				}
-				catch(DoubleBookedException e) {
-					System.out.println("pilot is double booked");
-
-				}
-
-				int add = schedular.getAircraftFor(flights).getCabinCrewRequired();// gets the required cabin crew for the aircraft that is allocated into the flight
-
-				try {
-
-					for(int j=0;j<cabincrew.size();j++) {// for loops through the cabin crew list
-
-						if(!(schedular.hasConflict(cabincrew.get(j), flights) )  ){// if it doesnt have conflict
-
-							//&& cabincrew.get(j).isQualifiedFor(schedular.getAircraftFor(flights)) 
-							schedular.allocateCabinCrewTo(cabincrew.get(j), flights);//allocate the cabin crew
-							add--;//keep doing it until the full required cabin crew for the flight are allocated
-							if(add<0) {
-								break;
-							}
-						}
-					}
-
-				}
-				catch(DoubleBookedException e) {
-					System.out.println("cabin crew is double booked");
 
-				}
-				System.currentTimeMillis();
+	}
 
+	/**
+	 * Repairs a schedule after aircraft or crew become unavailable, such as an aircraft going AOG or a pilot calling
+	 * in sick. Only the flights that used one of them are allocated again, along with any flights that were uncovered
+	 * or have no allocation yet. Every other flight keeps exactly the aircraft and crew it had, and is copied into the
+	 * new schedule without being checked, as flights taken from a schedule free of clashes can't clash with each other.
+	 * The flights allocated again are fitted around them, least used crew first as usual.
+	 *
+	 * The horizon given isn't changed and nothing is kept in this scheduler but its metrics, so horizons can be
+	 * rescheduled from more than one thread. A new Schedule is made, as a Schedule's allocations can't be taken back.
+	 * Resources that were unavailable in the horizon given stay unavailable in the one returned
+	 * @param previous the horizon to repair, from generateHorizon() or an earlier reschedule()
+	 * @param aircraft the aircraft that can no longer be used
+	 * @param crew the pilots and cabin crew who can no longer be used
+	 * @return the repaired horizon. Its report lists the flights that had to be allocated again
+	 */
+	public ScheduledHorizon reschedule(ScheduledHorizon previous, Collection<? extends Aircraft> aircraft, Collection<? extends Crew> crew) {
+		ScheduleGeneratedEvent event = SchedulerEvents.scheduleGenerated();
+		event.begin();
+		long started = System.nanoTime();
+
+		Set<Object> unavailable = Collections.newSetFromMap(new IdentityHashMap<>());
+		unavailable.addAll(previous.unavailable);
+		unavailable.addAll(aircraft);
+		unavailable.addAll(crew);
+
+		Schedule schedular = new Schedule(previous.routeDAO, previous.startDate, previous.endDate);
+		SchedulingRun run = new SchedulingRun(schedular, previous.resources, previous.passengerNumbersDAO, seed, metrics);
+		for(Object resource : unavailable) {
+			run.exclude(resource);
+		}
 
+		//the new schedule has its own FlightInfos, matched to the old allocations by flight number and date
+		Map<Long, Allocation> allocated = new HashMap<>();
+		for(Allocation allocation : previous.allocations) {
+			allocated.put(flightKey(allocation.flight), allocation);
+		}
 
+		//keep every complete allocation that doesn't touch an unavailable resource. A flight whose route has been
+		//retimed since is checked like any other, after the rest are in
+		List<FlightInfo> info = schedular.getRemainingAllocations();
+		List<FlightInfo> affected = new ArrayList<>();
+		List<FlightInfo> retimed = new ArrayList<>();
+		for(FlightInfo flight : info) {
+			Allocation kept = allocated.get(flightKey(flight));
+			if(kept == null || !kept.complete || uses(kept, unavailable)) {
+				affected.add(flight);
+			} else if(kept.departs != AvailabilityTimeline.departs(flight) || kept.lands != AvailabilityTimeline.lands(flight)) {
+				retimed.add(flight);
+			} else if(!run.apply(kept, flight, false)) {
+				affected.add(flight);
 			}
-			catch(DoubleBookedException e) {
-				System.out.println("aircraft was double booked");
+		}
+		for(FlightInfo flight : retimed) {
+			if(!run.apply(allocated.get(flightKey(flight)), flight, true)) {
+				affected.add(flight);
 			}
+		}
 
-			try {
+		for(FlightInfo flight : affected) {
+			run.allocate(flight);
+			Allocation was = allocated.get(flightKey(flight));
+			if(was != null && was.complete) {
+				run.getReport().recordRescheduled(flight);
+			}
+		}
 
-				schedular.completeAllocationFor(flights);
+		SchedulingReport report = run.getReport();
+		metrics.scheduled(System.nanoTime() - started, report);
+		event.commit(getClass(), report);
+		return new ScheduledHorizon(previous.routeDAO, previous.passengerNumbersDAO, previous.startDate, previous.endDate,
+				previous.resources, Collections.unmodifiableSet(unavailable), schedular, run);
+	}
 
+	private static long flightKey(FlightInfo flight) {
+		return PassengerNumbersDAO.key(flight.getDepartureDateTime().toLocalDate().toEpochDay(), flight.getFlight().getFlightNumber());
+	}
 
+	private static boolean uses(Allocation allocation, Set<Object> resources) {
+		if(resources.contains(allocation.aircraft) || resources.contains(allocation.captain) || resources.contains(allocation.firstOfficer)) {
+			return true;
+		}
+		for(Crew member : allocation.cabinCrew) {
+			if(resources.contains(member)) {
+				return true;
 			}
-			catch(InvalidAllocationException e) {
-				e.printStackTrace();
-				System.out.println("error");
-			}
-
-
 		}
-		System.currentTimeMillis();
-		System.out.println("number of completed "+ schedular.getCompletedAllocations().size());
-		return schedular;
+		return false;
+	}
 
+	/**
+	 * Plans the flights greedily, improves the plan until the deadline and copies it into the schedule
+	 * @return the run that filled in the schedule
+	 */
+	private SchedulingRun improve(SchedulingResources resources, IPassengerNumbersDAO passengerNumbersDAO,
+			Schedule schedular, List<FlightInfo> info, long deadline) {
 
+		long planning = System.nanoTime();
+		SchedulingRun plan = new SchedulingRun(null, resources, passengerNumbersDAO, seed, metrics);
+		for(FlightInfo flights: info) {
+			plan.allocate(flights);
+		}
+		planning = System.nanoTime() - planning;
+
+		//copying the plan into the schedule takes about as long as making it, so the search stops that much early
+		LocalSearch search = new LocalSearch(plan.getAllocations(), resources, seed);
+		search.improve(deadline - planning);
+
+		//the plan is already free of clashes, so apply only turns a flight down if the schedule itself disagrees
+		SchedulingRun run = new SchedulingRun(schedular, resources, passengerNumbersDAO, seed, metrics);
+		List<FlightInfo> leftOver = new ArrayList<>();
+		for(Allocation planned : plan.getAllocations()) {
+			if(!planned.complete || !run.apply(planned, planned.flight)) {
+				leftOver.add(planned.flight);
+			}
+		}
+		for(FlightInfo flights : leftOver) {
+			run.allocate(flights);
+		}
+		run.getReport().recordImprovement(search.getMoves(), search.getFills());
+		return run;
 	}
 }
-
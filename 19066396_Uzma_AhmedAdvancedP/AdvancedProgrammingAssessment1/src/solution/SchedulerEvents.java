@@ -0,0 +1,60 @@
+package solution;
+
+/**
+ * Hands out the events the scheduler records for each flight and each schedule.
+ *
+ * The JFR events extend jdk.jfr.Event, which isn't in Java 8, so they are compiled for Java 11 in the jfr source
+ * set and found by name the first time an event is asked for. On a JVM without JFR, or from classes built without
+ * the jfr source set such as Eclipse's bin, the events handed out record nothing.
+ */
+abstract class SchedulerEvents {
+
+	//the class in the jfr source set
+	private static final String JFR_EVENTS = "solution.JfrSchedulerEvents";
+
+	private static final SchedulerEvents EVENTS = load();
+
+	/**
+	 * Returns a new event for one flight being allocated
+	 * @return the event, which may record nothing
+	 */
+	static FlightAllocatedEvent flightAllocated() {
+		return EVENTS.newFlightAllocated();
+	}
+
+	/**
+	 * Returns a new event for one schedule being generated
+	 * @return the event, which may record nothing
+	 */
+	static ScheduleGeneratedEvent scheduleGenerated() {
+		return EVENTS.newScheduleGenerated();
+	}
+
+	abstract FlightAllocatedEvent newFlightAllocated();
+
+	abstract ScheduleGeneratedEvent newScheduleGenerated();
+
+	private static SchedulerEvents load() {
+		try {
+			return (SchedulerEvents) Class.forName(JFR_EVENTS).getDeclaredConstructor().newInstance();
+		}
+		catch(ReflectiveOperationException | LinkageError e) {
+			return new Disabled();//not built, built for a newer Java, or no jdk.jfr
+		}
+	}
+
+	/**
+	 * The events that record nothing
+	 */
+	private static final class Disabled extends SchedulerEvents {
+		@Override
+		FlightAllocatedEvent newFlightAllocated() {
+			return new FlightAllocatedEvent();
+		}
+
+		@Override
+		ScheduleGeneratedEvent newScheduleGenerated() {
+			return new ScheduleGeneratedEvent();
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package solution;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and timers for where a scheduler spends its time, added to by every schedule the scheduler generates.
+ *
+ * Everything is a LongAdder, so the blocks of a ParallelScheduler can record into the same metrics without
+ * contending on them, and the metrics can be read while a schedule is being generated.
+ * The same figures for each flight and each schedule are also recorded as JFR events where JFR is there,
+ * see SchedulerEvents.
+ */
+public class SchedulerMetrics {
+
+	/**
+	 * The steps of allocating a flight
+	 */
+	public enum Phase {
+		/** choosing and allocating the aircraft */
+		AIRCRAFT,
+		/** choosing and allocating the captain and first officer */
+		PILOTS,
+		/** choosing and allocating the cabin crew */
+		CABIN_CREW,
+		/** completing the allocation in the schedule */
+		COMPLETION
+	}
+
+	private final Map<Phase, LongAdder> phaseNanos = new EnumMap<>(Phase.class);
+	private final Map<Phase, LongAdder> phaseCounts = new EnumMap<>(Phase.class);
+	private final LongAdder timelineRejections = new LongAdder();
+	private final ConcurrentHashMap<String, LongAdder> exceptions = new ConcurrentHashMap<>();
+	private final LongAdder schedules = new LongAdder();
+	private final LongAdder scheduleNanos = new LongAdder();
+	private final LongAdder flights = new LongAdder();
+	private final LongAdder completed = new LongAdder();
+
+	/**
+	 * Creates a set of metrics with everything at zero
+	 */
+	public SchedulerMetrics() {
+		for(Phase phase : Phase.values()) {
+			phaseNanos.put(phase, new LongAdder());
+			phaseCounts.put(phase, new LongAdder());
+		}
+	}
+
+	/**
+	 * Records the time taken by one phase of one flight
+	 * @param phase the phase
+	 * @param nanos how long it took
+	 */
+	void time(Phase phase, long nanos) {
+		phaseNanos.get(phase).add(nanos);
+		phaseCounts.get(phase).increment();
+	}
+
+	/**
+	 * Records a resource ruled out as busy by the run's own timeline
+	 */
+	void timelineRejected() {
+		timelineRejections.increment();
+	}
+
+	/**
+	 * Records an exception thrown by the schedule and handled by the scheduler
+	 * @param e the exception
+	 */
+	void exception(Exception e) {
+		exceptions.computeIfAbsent(e.getClass().getSimpleName(), k -> new LongAdder()).increment();
+	}
+
+	/**
+	 * Records a generated schedule
+	 * @param nanos how long generating it took
+	 * @param report the report on it
+	 */
+	void scheduled(long nanos, SchedulingReport report) {
+		schedules.increment();
+		scheduleNanos.add(nanos);
+		flights.add(report.getFlights());
+		completed.add(report.getFlights() - report.getUncoveredFlights().size());
+	}
+
+	/**
+	 * Returns the total time spent in a phase
+	 * @param phase the phase
+	 * @return the time in nanoseconds
+	 */
+	public long getPhaseNanos(Phase phase) {
+		return phaseNanos.get(phase).sum();
+	}
+
+	/**
+	 * Returns the number of times a phase was timed, once each time a run handles a flight. Flights planned
+	 * and then copied into a schedule are counted twice
+	 * @param phase the phase
+	 * @return the number of times
+	 */
+	public long getPhaseCount(Phase phase) {
+		return phaseCounts.get(phase).sum();
+	}
+
+	/**
+	 * Returns the number of resources ruled out as busy by the timeline. The schedule is never asked, a double
+	 * booking it catches anyway is counted in getExceptionCounts()
+	 * @return the number of resources ruled out
+	 */
+	public long getTimelineRejections() {
+		return timelineRejections.sum();
+	}
+
+	/**
+	 * Returns how many of each type of exception the scheduler handled
+	 * @return the simple class name of each exception type, and how many were handled, sorted by name
+	 */
+	public Map<String, Long> getExceptionCounts() {
+		Map<String, Long> counts = new TreeMap<>();
+		exceptions.forEach((type, count) -> counts.put(type, count.sum()));
+		return counts;
+	}
+
+	/**
+	 * Returns the number of schedules generated
+	 * @return the number of schedules
+	 */
+	public long getSchedules() {
+		return schedules.sum();
+	}
+
+	/**
+	 * Returns the total time spent generating schedules
+	 * @return the time in nanoseconds
+	 */
+	public long getScheduleNanos() {
+		return scheduleNanos.sum();
+	}
+
+	/**
+	 * Returns the number of flights over all the schedules generated
+	 * @return the number of flights
+	 */
+	public long getFlights() {
+		return flights.sum();
+	}
+
+	/**
+	 * Returns the number of completed allocations over all the schedules generated
+	 * @return the number of completed allocations
+	 */
+	public long getCompleted() {
+		return completed.sum();
+	}
+
+	/**
+	 * Sets everything back to zero
+	 */
+	public void reset() {
+		for(Phase phase : Phase.values()) {
+			phaseNanos.get(phase).reset();
+			phaseCounts.get(phase).reset();
+		}
+		timelineRejections.reset();
+		exceptions.clear();
+		schedules.reset();
+		scheduleNanos.reset();
+		flights.reset();
+		completed.reset();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder();
+		text.append(String.format("%d schedules in %.1f ms, %d of %d flights completed%n", getSchedules(), getScheduleNanos() / 1e6,
+				getCompleted(), getFlights()));
+		for(Phase phase : Phase.values()) {
+			text.append(String.format("  %-10s %10.1f ms, %d times%n", phase, getPhaseNanos(phase) / 1e6, getPhaseCount(phase)));
+		}
+		text.append(String.format("  %d ruled out by the timeline%n", getTimelineRejections()));
+		text.append("  exceptions " + getExceptionCounts());
+		return text.toString();
+	}
+}
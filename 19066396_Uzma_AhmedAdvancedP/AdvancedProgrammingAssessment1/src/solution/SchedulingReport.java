@@ -0,0 +1,201 @@
+package solution;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import baseclasses.FlightInfo;
+
+/**
+ * A summary of how well a generated schedule used the fleet: how full the aircraft are expected to be
+ * against the passenger forecasts, and which flights could not be given a complete allocation.
+ */
+public class SchedulingReport {
+
+	private int flights;
+	private int forecastFlights;//flights with both a forecast and an aircraft
+	private long forecastPassengers;
+	private long seatsOffered;
+	private int undersizedFlights;
+	private long emptySeats;//summed per flight, so a full flight can't make up for a half empty one
+	private long unseatedPassengers;//the forecast passengers an undersized aircraft has no seat for
+	private final List<FlightInfo> uncoveredFlights = new ArrayList<>();
+	private final List<FlightInfo> boundaryConflicts = new ArrayList<>();
+	private final List<FlightInfo> rescheduledFlights = new ArrayList<>();
+	private long searchMoves;
+	private long searchFills;
+
+	/**
+	 * Records the aircraft a flight was given. Called once for each flight
+	 * @param passengers the forecast number of passengers, or a negative number if there was no forecast
+	 * @param seats the number of seats on the aircraft it was given
+	 */
+	void recordAircraft(int passengers, int seats) {
+		if(passengers < 0) {
+			return;//nothing to measure the aircraft against
+		}
+		forecastFlights++;
+		forecastPassengers += passengers;
+		seatsOffered += seats;
+		if(passengers > seats) {
+			undersizedFlights++;
+			unseatedPassengers += passengers - seats;
+		} else {
+			emptySeats += seats - passengers;
+		}
+	}
+
+	/**
+	 * Records the outcome of a flight
+	 * @param flight the flight
+	 * @param complete whether the flight's allocation was completed
+	 */
+	void recordFlight(FlightInfo flight, boolean complete) {
+		flights++;
+		if(!complete) {
+			uncoveredFlights.add(flight);
+		}
+	}
+
+	/**
+	 * Records a flight whose allocation, planned separately from the flights around it,
+	 * clashed with them and had to be made again
+	 * @param flight the flight
+	 */
+	void recordBoundaryConflict(FlightInfo flight) {
+		boundaryConflicts.add(flight);
+	}
+
+	/**
+	 * Records a flight whose allocation used a resource that became unavailable and had to be made again
+	 * @param flight the flight
+	 */
+	void recordRescheduled(FlightInfo flight) {
+		rescheduledFlights.add(flight);
+	}
+
+	/**
+	 * Records what the local search did to the plan before it was copied into the schedule
+	 * @param moves the number of moves tried
+	 * @param fills the number of crew places it filled on flights the greedy pass left uncovered
+	 */
+	void recordImprovement(long moves, long fills) {
+		searchMoves = moves;
+		searchFills = fills;
+	}
+
+	/**
+	 * Returns the number of flights in the scheduling horizon
+	 * @return the number of flights
+	 */
+	public int getFlights() {
+		return flights;
+	}
+
+	/**
+	 * Returns the fraction of seats expected to be filled, over the flights with a passenger forecast
+	 * @return forecast passengers divided by seats offered, or 0 if no flight had a forecast
+	 */
+	public double getSeatUtilisation() {
+		return seatsOffered == 0 ? 0 : (double) forecastPassengers / seatsOffered;
+	}
+
+	/**
+	 * Returns the number of flights with a forecast that were given an aircraft
+	 * @return the number of flights the utilisation is measured over
+	 */
+	public int getForecastFlights() {
+		return forecastFlights;
+	}
+
+	/**
+	 * Returns the total forecast passengers over the flights with a forecast
+	 * @return the forecast passengers
+	 */
+	public long getForecastPassengers() {
+		return forecastPassengers;
+	}
+
+	/**
+	 * Returns the total seats on the aircraft given to flights with a forecast
+	 * @return the seats offered
+	 */
+	public long getSeatsOffered() {
+		return seatsOffered;
+	}
+
+	/**
+	 * Returns the seats expected to be empty, added up flight by flight over the flights with a forecast.
+	 * An undersized flight adds nothing, rather than taking its missing seats off the total
+	 * @return the number of empty seats
+	 */
+	public long getEmptySeats() {
+		return emptySeats;
+	}
+
+	/**
+	 * Returns the forecast passengers there are no seats for, added up over the undersized flights
+	 * @return the number of passengers without a seat
+	 */
+	public long getUnseatedPassengers() {
+		return unseatedPassengers;
+	}
+
+	/**
+	 * Returns the number of flights given an aircraft with fewer seats than the forecast, as nothing bigger was free
+	 * @return the number of undersized flights
+	 */
+	public int getUndersizedFlights() {
+		return undersizedFlights;
+	}
+
+	/**
+	 * Returns the flights that could not be given a complete allocation
+	 * @return a read-only list of the uncovered flights
+	 */
+	public List<FlightInfo> getUncoveredFlights() {
+		return Collections.unmodifiableList(uncoveredFlights);
+	}
+
+	/**
+	 * Returns the flights whose planned allocation clashed with a neighbouring block of a parallel run and was redone.
+	 * Always empty for a schedule generated in a single pass
+	 * @return a read-only list of the flights
+	 */
+	public List<FlightInfo> getBoundaryConflicts() {
+		return Collections.unmodifiableList(boundaryConflicts);
+	}
+
+	/**
+	 * Returns the flights that were given a new allocation by Scheduler.reschedule(). Always empty for a schedule
+	 * generated from scratch
+	 * @return a read-only list of the flights
+	 */
+	public List<FlightInfo> getRescheduledFlights() {
+		return Collections.unmodifiableList(rescheduledFlights);
+	}
+
+	/**
+	 * Returns the number of moves the local search tried. Always 0 unless the scheduler had a time budget
+	 * @return the number of moves
+	 */
+	public long getSearchMoves() {
+		return searchMoves;
+	}
+
+	/**
+	 * Returns the number of crew places the local search filled on flights the greedy pass left uncovered
+	 * @return the number of places filled
+	 */
+	public long getSearchFills() {
+		return searchFills;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d flights, %d uncovered, seat utilisation %.1f%% (%d passengers in %d seats over %d flights), %d undersized, %d boundary conflicts",
+				flights, uncoveredFlights.size(), getSeatUtilisation() * 100, forecastPassengers, seatsOffered, forecastFlights, undersizedFlights,
+				boundaryConflicts.size())
+				+ (rescheduledFlights.isEmpty() ? "" : String.format(", %d rescheduled", rescheduledFlights.size()))
+				+ (searchMoves == 0 ? "" : String.format(", local search tried %d moves and filled %d crew places", searchMoves, searchFills));
+	}
+}
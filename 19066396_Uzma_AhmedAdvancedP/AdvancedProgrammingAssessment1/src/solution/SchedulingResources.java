@@ -0,0 +1,42 @@
+package solution;
+import baseclasses.CabinCrew;
+import baseclasses.IAircraftDAO;
+import baseclasses.ICrewDAO;
+import baseclasses.Pilot;
+
+/**
+ * The aircraft and crew a schedule is made from, indexed the way a SchedulingRun needs them: the fleet in order of
+ * seats with where each aircraft starts, and the pilots and cabin crew with their type rating bitmaps.
+ *
+ * Nothing in here is changed once it has been built, so it is built once for each schedule and shared by every run
+ * over it, such as the day blocks of a ParallelScheduler planning side by side. Each run keeps only what changes as
+ * it goes: its bookings, where the aircraft are and how much each crew member has flown.
+ */
+final class SchedulingResources {
+
+	final AircraftSelector.Fleet fleet;
+	//crew are known by their position in these
+	final TypeRatingIndex<Pilot> pilots;
+	final TypeRatingIndex<CabinCrew> cabinCrew;
+
+	/**
+	 * Indexes the aircraft and crew as they are loaded now
+	 * @param aircraftDAO where the aircraft come from
+	 * @param crewDAO where the pilots and cabin crew come from
+	 */
+	SchedulingResources(IAircraftDAO aircraftDAO, ICrewDAO crewDAO) {
+		fleet = new AircraftSelector.Fleet(aircraftDAO);
+
+		//the DAO's own indexes, read from one load so pilots and cabin crew match. Other DAOs get indexes built here
+		if(crewDAO instanceof CrewDAO) {
+			CrewDAO.Contents contents = ((CrewDAO) crewDAO).contents;
+			pilots = contents.pilotIndex;
+			cabinCrew = contents.cabinCrewIndex;
+		} else {
+			pilots = new TypeRatingIndex<>();
+			pilots.addAll(crewDAO.getAllPilots());
+			cabinCrew = new TypeRatingIndex<>();
+			cabinCrew.addAll(crewDAO.getAllCabinCrew());
+		}
+	}
+}
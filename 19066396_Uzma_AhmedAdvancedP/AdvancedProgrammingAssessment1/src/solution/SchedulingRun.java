@@ -0,0 +1,434 @@
+package solution;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import baseclasses.Aircraft;
+import baseclasses.CabinCrew;
+import baseclasses.Crew;
+import baseclasses.DoubleBookedException;
+import baseclasses.FlightInfo;
+import baseclasses.IAircraftDAO;
+import baseclasses.ICrewDAO;
+import baseclasses.IPassengerNumbersDAO;
+import baseclasses.InvalidAllocationException;
+import baseclasses.Pilot;
+import baseclasses.Route;
+import baseclasses.Schedule;
+import solution.SchedulerMetrics.Phase;
+
+/**
+ * The state of one greedy scheduling pass: who is booked when, how much each crew member has flown,
+ * where each aircraft is, and the allocation made for each flight so far.
+ *
+ * A run either fills in a Schedule, or, when it is given no Schedule, only plans: the allocations are worked out
+ * and recorded against the run's own timeline without touching any Schedule. Planning runs are what the day blocks
+ * of a ParallelScheduler use, as they can run side by side and be copied into the real Schedule afterwards.
+ *
+ * A run is the only thing that allocates to its Schedule, so its timeline holds every booking the Schedule does and
+ * the Schedule is never asked about conflicts. If the Schedule turns an allocation down anyway, the
+ * DoubleBookedException leaves the role empty, or for apply() leaves the flight to allocate().
+ */
+final class SchedulingRun {
+
+	private final Schedule schedule;//null when only planning
+	private final IPassengerNumbersDAO passengerNumbersDAO;
+
+	//who is busy when, so that resources already booked over a flight are skipped without asking the schedule
+	private final AvailabilityTimeline timeline = new AvailabilityTimeline();
+	private final AircraftSelector aircraftSelector;
+	//the crew and their type rating bitmaps, shared with the DAO and other runs. Crew are known by their position in these
+	private final TypeRatingIndex<Pilot> pilots;
+	private final TypeRatingIndex<CabinCrew> cabinCrew;
+	//the crew taken out of the run by exclude(), by position. A flight's candidates are the rated crew AND NOT these
+	private final BitSet excludedPilots = new BitSet();
+	private final BitSet excludedCabinCrew = new BitSet();
+	//the aircraft taken out of the run by exclude(), compared by identity like the timeline
+	private final Set<Aircraft> excludedAircraft = Collections.newSetFromMap(new IdentityHashMap<>());
+	private final CrewRotation pilotRotation;
+	private final CrewRotation cabinCrewRotation;
+
+	private final SchedulingReport report = new SchedulingReport();
+	private final SchedulerMetrics metrics;
+	private final List<Allocation> allocations = new ArrayList<>();
+	//flights an apply() gave some of their aircraft and crew to before the schedule turned it down, by FlightInfo.
+	//What they were given can't be taken back, so allocate() carries on from it
+	private final Map<FlightInfo, Allocation> partlyApplied = new IdentityHashMap<>();
+
+	/**
+	 * Starts a run with nobody booked
+	 * @param schedule the schedule to fill in, which nothing else may allocate to, or null to only plan
+	 * @param aircraftDAO where the aircraft come from
+	 * @param crewDAO where the pilots and cabin crew come from
+	 * @param passengerNumbersDAO where the passenger forecasts come from
+	 * @param seed the seed for the order crew who have flown the same amount are tried in
+	 * @param metrics where to record the time spent and the schedule's answers
+	 */
+	SchedulingRun(Schedule schedule, IAircraftDAO aircraftDAO, ICrewDAO crewDAO, IPassengerNumbersDAO passengerNumbersDAO, long seed,
+			SchedulerMetrics metrics) {
+		this(schedule, new SchedulingResources(aircraftDAO, crewDAO), passengerNumbersDAO, seed, metrics);
+	}
+
+	/**
+	 * Starts a run with nobody booked, over aircraft and crew already indexed
+	 * @param schedule the schedule to fill in, which nothing else may allocate to, or null to only plan
+	 * @param resources the aircraft and crew, which may be shared with other runs
+	 * @param passengerNumbersDAO where the passenger forecasts come from
+	 * @param seed the seed for the order crew who have flown the same amount are tried in
+	 * @param metrics where to record the time spent and the schedule's answers
+	 */
+	SchedulingRun(Schedule schedule, SchedulingResources resources, IPassengerNumbersDAO passengerNumbersDAO, long seed,
+			SchedulerMetrics metrics) {
+		this.schedule = schedule;
+		this.metrics = metrics;
+		this.passengerNumbersDAO = passengerNumbersDAO;
+		aircraftSelector = new AircraftSelector(resources.fleet);
+		pilots = resources.pilots;
+		cabinCrew = resources.cabinCrew;
+		pilotRotation = new CrewRotation(pilots, seed);
+		cabinCrewRotation = new CrewRotation(cabinCrew, ~seed);//so pilots and cabin crew at the same positions aren't in step
+	}
+
+	/**
+	 * Allocates an aircraft and crew to a flight: the smallest free aircraft that fits the passenger forecast,
+	 * then the least used free pilots and cabin crew rated for it. The flight is completed if it can be.
+	 * If an apply() left the flight part way through, only the roles it didn't fill are allocated
+	 * @param flights the flight
+	 * @return what the flight was given
+	 */
+	Allocation allocate(FlightInfo flights) {
+		FlightAllocatedEvent event = SchedulerEvents.flightAllocated();
+		event.begin();
+		long phaseStart = System.nanoTime();
+
+		Route route = flights.getFlight();
+		Allocation partly = partlyApplied.remove(flights);
+		Allocation allocation = partly != null ? partly : new Allocation(flights,
+				passengerNumbersDAO.getPassengerNumbersFor(route.getFlightNumber(), flights.getDepartureDateTime().toLocalDate()));
+
+		try{
+
+			Aircraft plane = allocation.aircraft;
+			if(plane == null) {
+				plane = aircraftSelector.choose(allocation.passengers, route.getDepartureAirportCode(), allocation.departs,
+						a -> isFree(a, allocation));
+				if(plane != null) {//allocate the  1 aircraft to the flight
+					giveAircraft(plane, allocation);
+				}
+			}
+			phaseStart = endPhase(Phase.AIRCRAFT, phaseStart, event);
+			//crew have to be rated for the aircraft, so without one there is nobody to allocate
+			int pilotType = plane == null ? -1 : pilots.typeId(plane.getTypeCode());
+			int cabinCrewType = plane == null ? -1 : cabinCrew.typeId(plane.getTypeCode());
+
+			try {
+				//the least used qualified free pilot is captain, then the next least used is first officer
+				int needed = (allocation.captain == null ? 1 : 0) + (allocation.firstOfficer == null ? 1 : 0);
+				if(pilotType >= 0 && needed > 0) {
+					BitSet candidates = candidates(pilots.rated(pilotType), excludedPilots);
+					int[] picked = new int[needed];
+					int found = pilotRotation.next(pilotType, i -> candidates.get(i) && isFree(pilots.get(i), allocation), needed, picked);
+					int next = 0;
+					if(allocation.captain == null && next < found) {
+						giveCaptain(picked[next++], allocation);
+					}
+					if(allocation.firstOfficer == null && next < found) {
+						giveFirstOfficer(picked[next], allocation);
+					}
+				}
+
+			}
+			catch(DoubleBookedException e) {
+				metrics.exception(e);
+
+			}
+			phaseStart = endPhase(Phase.PILOTS, phaseStart, event);
+
+			// gets the required cabin crew for the aircraft that is allocated into the flight, with no qualified crew there is no point trying
+			int add = cabinCrewType < 0 ? 0 : plane.getCabinCrewRequired() - allocation.cabinCrew.size();
+
+			try {
+
+				if(add > 0) {//the full required cabin crew for the flight, or as many as are free
+					BitSet candidates = candidates(cabinCrew.rated(cabinCrewType), excludedCabinCrew);
+					int[] picked = new int[add];
+					int found = cabinCrewRotation.next(cabinCrewType, i -> candidates.get(i) && isFree(cabinCrew.get(i), allocation), add, picked);
+					for(int i = 0; i < found; i++) {
+						giveCabinCrew(picked[i], allocation);//allocate the cabin crew
+					}
+				}
+
+			}
+			catch(DoubleBookedException e) {
+				metrics.exception(e);
+
+			}
+			endPhase(Phase.CABIN_CREW, phaseStart, event);
+
+		}
+		catch(DoubleBookedException e) {
+			metrics.exception(e);
+			endPhase(Phase.AIRCRAFT, phaseStart, event);
+		}
+
+		event.completionNanos = complete(allocation);
+		event.end();
+		if(event.shouldCommit()) {
+			event.flightNumber = route.getFlightNumber();
+			event.departure = flights.getDepartureDateTime().toString();
+			event.complete = allocation.complete;
+			event.commit();
+		}
+		return allocation;
+	}
+
+	/**
+	 * Records the time since a phase started, in the metrics and the flight's event
+	 * @return when the phase ended, the start of the next one
+	 */
+	private long endPhase(Phase phase, long start, FlightAllocatedEvent event) {
+		long now = System.nanoTime();
+		long nanos = now - start;
+		metrics.time(phase, nanos);
+		switch(phase) {
+		case AIRCRAFT:
+			event.aircraftNanos = nanos;
+			break;
+		case PILOTS:
+			event.pilotNanos = nanos;
+			break;
+		case CABIN_CREW:
+			event.cabinCrewNanos = nanos;
+			break;
+		default:
+			break;//completion is timed by complete()
+		}
+		return now;
+	}
+
+	/**
+	 * Gives a flight the same aircraft and crew as an allocation planned elsewhere, as long as all of them are free
+	 * in this run. If any of them isn't, the flight is left for allocate(): untouched if the check found it, or
+	 * with what it was given if the schedule turned it down part way through
+	 * @param planned the planned allocation, made for the same flight in another run
+	 * @param flight this run's FlightInfo for the flight
+	 * @return true if the planned allocation was copied, false if it conflicted with something already in this run
+	 */
+	boolean apply(Allocation planned, FlightInfo flight) {
+		return apply(planned, flight, true);
+	}
+
+	/**
+	 * Gives a flight the same aircraft and crew as an allocation planned elsewhere.
+	 *
+	 * If the schedule turns one of them down part way through, the flight is not completed and false is returned
+	 * like any other conflict. What was given can't be taken back, so it stays on the flight and allocate() only
+	 * fills the roles still empty
+	 * @param planned the planned allocation, made for the same flight in another run
+	 * @param flight this run's FlightInfo for the flight
+	 * @param check whether to check the aircraft and crew are free first, leaving the flight untouched if they aren't.
+	 * Only a plan known not to clash with anything already in this run can skip it, such as the flights of a
+	 * ParallelScheduler block that don't come near the block's edges
+	 * @return true if the planned allocation was copied, false if it conflicted with something already in this run
+	 */
+	boolean apply(Allocation planned, FlightInfo flight, boolean check) {
+		Allocation allocation = new Allocation(flight, planned.passengers);
+
+		//check everybody first, so a conflict leaves the flight untouched
+		if(planned.aircraft == null || excludedAircraft.contains(planned.aircraft) || (check && !isFree(planned.aircraft, allocation))) {
+			return false;
+		}
+		//crew this run doesn't know, or has excluded, can't be given the flight
+		int captain = available(pilots, excludedPilots, planned.captain, allocation, check);
+		int firstOfficer = available(pilots, excludedPilots, planned.firstOfficer, allocation, check);
+		if(captain < 0 || firstOfficer < 0) {
+			return false;
+		}
+		int[] members = new int[planned.cabinCrew.size()];
+		for(int i = 0; i < members.length; i++) {
+			members[i] = available(cabinCrew, excludedCabinCrew, planned.cabinCrew.get(i), allocation, check);
+			if(members[i] < 0) {
+				return false;
+			}
+		}
+
+		try {
+			giveAircraft(planned.aircraft, allocation);
+			giveCaptain(captain, allocation);
+			giveFirstOfficer(firstOfficer, allocation);
+			for(int member : members) {
+				giveCabinCrew(member, allocation);
+			}
+		}
+		catch(DoubleBookedException e) {
+			metrics.exception(e);
+			partlyApplied.put(flight, allocation);//partly staffed, so it mustn't be reported as completed
+			return false;
+		}
+
+		complete(allocation);
+		return true;
+	}
+
+	/**
+	 * Takes an aircraft or crew member out of the run. Crew are cleared from the bitmap every flight's candidates
+	 * are ANDed with, and an aircraft is skipped by isFree() without being booked on the timeline
+	 * @param resource the aircraft or crew member that can no longer be used
+	 */
+	void exclude(Object resource) {
+		if(resource instanceof Pilot) {
+			exclude(pilots, excludedPilots, (Pilot) resource);
+		} else if(resource instanceof CabinCrew) {
+			exclude(cabinCrew, excludedCabinCrew, (CabinCrew) resource);
+		} else if(resource instanceof Aircraft) {
+			excludedAircraft.add((Aircraft) resource);
+		}
+	}
+
+	private static <T extends Crew> void exclude(TypeRatingIndex<T> index, BitSet excluded, T member) {
+		int position = index.positionOf(member);
+		if(position >= 0) {
+			excluded.set(position);
+		}
+	}
+
+	/**
+	 * Works out which crew can be considered for a flight: the crew rated for its aircraft AND NOT the crew excluded
+	 * from the run, in one operation over the bitmaps
+	 * @return the candidates, the rated bitmap itself if nobody is excluded. It must not be changed
+	 */
+	private static BitSet candidates(BitSet rated, BitSet excluded) {
+		if(excluded.isEmpty()) {
+			return rated;
+		}
+		BitSet candidates = (BitSet) rated.clone();
+		candidates.andNot(excluded);
+		return candidates;
+	}
+
+	/**
+	 * Finds a planned crew member's position, if they can be given the flight in this run
+	 * @param check whether to check they are free over the flight
+	 * @return the position, or -1 if they aren't in this run's crew, are excluded or are busy
+	 */
+	private <T extends Crew> int available(TypeRatingIndex<T> index, BitSet excluded, T member, Allocation allocation, boolean check) {
+		int position = member == null ? -1 : index.positionOf(member);
+		if(position < 0 || excluded.get(position) || (check && !isFree(member, allocation))) {
+			return -1;
+		}
+		return position;
+	}
+
+	/**
+	 * Returns the report on the flights this run has handled
+	 * @return the report
+	 */
+	SchedulingReport getReport() {
+		return report;
+	}
+
+	/**
+	 * Returns the allocation made for each flight this run has handled, in the order they were handled
+	 * @return a read-only list of the allocations
+	 */
+	List<Allocation> getAllocations() {
+		return Collections.unmodifiableList(allocations);
+	}
+
+	//the timeline has every booking in the schedule, so it alone decides
+	private boolean isFree(Aircraft a, Allocation allocation) {
+		if(excludedAircraft.contains(a)) {
+			return false;
+		}
+		return isFree((Object) a, allocation);
+	}
+
+	private boolean isFree(Crew c, Allocation allocation) {
+		return isFree((Object) c, allocation);
+	}
+
+	private boolean isFree(Object resource, Allocation allocation) {
+		if(!timeline.isFree(resource, allocation.departs, allocation.lands)) {
+			metrics.timelineRejected();
+			return false;
+		}
+		return true;
+	}
+
+	private void giveAircraft(Aircraft plane, Allocation allocation) throws DoubleBookedException {
+		if(schedule != null) {
+			schedule.allocateAircraftTo(plane, allocation.flight);
+		}
+		timeline.book(plane, allocation.departs, allocation.lands);
+		aircraftSelector.flew(plane, allocation.lands, allocation.flight.getFlight().getArrivalAirportCode());
+		allocation.aircraft = plane;
+	}
+
+	private void giveCaptain(int position, Allocation allocation) throws DoubleBookedException {
+		Pilot captain = pilots.get(position);
+		if(schedule != null) {
+			schedule.allocateCaptainTo(captain, allocation.flight);
+		}
+		timeline.book(captain, allocation.departs, allocation.lands);
+		pilotRotation.flew(position, allocation.minutes());
+		allocation.captain = captain;
+	}
+
+	private void giveFirstOfficer(int position, Allocation allocation) throws DoubleBookedException {
+		Pilot firstOfficer = pilots.get(position);
+		if(schedule != null) {
+			schedule.allocateFirstOfficerTo(firstOfficer, allocation.flight);
+		}
+		timeline.book(firstOfficer, allocation.departs, allocation.lands);
+		pilotRotation.flew(position, allocation.minutes());
+		allocation.firstOfficer = firstOfficer;
+	}
+
+	private void giveCabinCrew(int position, Allocation allocation) throws DoubleBookedException {
+		CabinCrew member = cabinCrew.get(position);
+		if(schedule != null) {
+			schedule.allocateCabinCrewTo(member, allocation.flight);
+		}
+		timeline.book(member, allocation.departs, allocation.lands);
+		cabinCrewRotation.flew(position, allocation.minutes());
+		allocation.cabinCrew.add(member);
+	}
+
+	/**
+	 * Completes the flight's allocation in the schedule if it is valid, or when planning, if every role is filled
+	 * @return how long it took, in nanoseconds
+	 */
+	private long complete(Allocation allocation) {
+		long start = System.nanoTime();
+		if(schedule != null) {
+			try {
+
+				schedule.completeAllocationFor(allocation.flight);
+				allocation.complete = true;
+
+
+			}
+			catch(InvalidAllocationException e) {
+				metrics.exception(e);
+				allocation.complete = false;
+			}
+		} else {
+			allocation.complete = allocation.isFilled();
+		}
+
+		//measured once the flight is done with, so an aircraft given by an apply() that fell through isn't counted too
+		if(allocation.aircraft != null) {
+			report.recordAircraft(allocation.passengers, allocation.aircraft.getSeats());
+		}
+		report.recordFlight(allocation.flight, allocation.complete);
+		allocations.add(allocation);
+
+		long nanos = System.nanoTime() - start;
+		metrics.time(Phase.COMPLETION, nanos);
+		return nanos;
+	}
+}
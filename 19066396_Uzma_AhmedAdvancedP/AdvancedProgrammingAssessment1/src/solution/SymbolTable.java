@@ -0,0 +1,125 @@
+package solution;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Dictionary encodes short codes, such as airport and type codes, to small int ids shared by every DAO.
+ *
+ * Each different code is given the next id the first time it is seen, and keeps it for as long as the program runs,
+ * so ids from one DAO can be compared with ids from another. The loaders also swap each code they read for the one
+ * instance of it held here, so a data set holds one String per code however many aircraft, crew and routes use it.
+ * Indexes keyed on codes are lists indexed by id, and comparing two codes is comparing two ints.
+ *
+ * Codes are never removed. There are only ever a few hundred airports and types, so the tables stay small.
+ * Looking up ids is safe from any number of threads, and giving out new ids is serialised on the table.
+ */
+final class SymbolTable {
+
+	//the airport codes of aircraft starting positions, crew home bases and route departures and arrivals
+	static final SymbolTable AIRPORTS = new SymbolTable();
+	//the aircraft type codes and crew type ratings
+	static final SymbolTable TYPES = new SymbolTable();
+
+	private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+	//the code for each id. Only grown under the lock, and an id is only handed out once its code is in here
+	private volatile String[] codes = new String[16];
+	private int size;
+
+	/**
+	 * Returns the id of a code, giving it the next id if it hasn't been seen before
+	 * @param code the code
+	 * @return the id, or -1 for a null code
+	 */
+	int id(String code) {
+		if(code == null) {
+			return -1;
+		}
+		Integer id = ids.get(code);
+		return id != null ? id : add(code);
+	}
+
+	/**
+	 * Returns the id of a code that may have been seen before, without adding it. Finders use this,
+	 * so searching for codes that were never loaded doesn't grow the table
+	 * @param code the code
+	 * @return the id, or -1 if the code has never been seen
+	 */
+	int find(String code) {
+		if(code == null) {
+			return -1;
+		}
+		Integer id = ids.get(code);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Returns the code an id stands for
+	 * @param id an id handed out by this table
+	 * @return the one instance of the code held by the table
+	 */
+	String code(int id) {
+		return codes[id];
+	}
+
+	/**
+	 * Returns the one instance of a code held by the table, adding it if it hasn't been seen before
+	 * @param code the code, as read from a file
+	 * @return an equal String shared with everything else holding the code, or null for a null code
+	 */
+	String intern(String code) {
+		return code == null ? null : code(id(code));
+	}
+
+	/**
+	 * Returns the number of different codes seen so far
+	 * @return the number of ids handed out
+	 */
+	synchronized int size() {
+		return size;
+	}
+
+	private synchronized int add(String code) {
+		Integer id = ids.get(code);//another thread may have added it while we waited
+		if(id != null) {
+			return id;
+		}
+		if(size == codes.length) {
+			codes = Arrays.copyOf(codes, size * 2);
+		}
+		codes[size] = code;
+		ids.put(code, size);
+		return size++;
+	}
+
+	/**
+	 * Returns the entry for an id from a list indexed by id
+	 * @param index the list
+	 * @param id the id, possibly -1 or beyond the end of the list
+	 * @return the entry, or null if there isn't one
+	 */
+	static <T> T get(List<T> index, int id) {
+		return id >= 0 && id < index.size() ? index.get(id) : null;
+	}
+
+	/**
+	 * Returns the entry for an id from a list indexed by id, creating it if there isn't one yet
+	 * @param index the list, which is grown as far as the id if needed
+	 * @param id the id, which must not be negative
+	 * @param create makes a new entry
+	 * @return the entry
+	 */
+	static <T> T getOrCreate(List<T> index, int id, Supplier<T> create) {
+		while(index.size() <= id) {
+			index.add(null);
+		}
+		T entry = index.get(id);
+		if(entry == null) {
+			entry = create.get();
+			index.set(id, entry);
+		}
+		return entry;
+	}
+}
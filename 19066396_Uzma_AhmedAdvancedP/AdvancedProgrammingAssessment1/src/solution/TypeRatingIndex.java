@@ -0,0 +1,170 @@
+package solution;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import baseclasses.Crew;
+
+/**
+ * Indexes crew members by type rating and home base using bitmaps.
+ *
+ * Each crew member added gets a position, and type and airport codes are dictionary encoded to their ids in
+ * SymbolTable.TYPES and SymbolTable.AIRPORTS. For every type there is a BitSet of the positions of the crew
+ * qualified for it, and for every home base a BitSet of the crew based there, both held in lists indexed by id.
+ * Finding the crew with a rating at a base walks the set bits of one bitmap while testing the other, with no
+ * string comparison, and scheduling runs pick crew by position straight from the bitmaps of the DAO's index.
+ *
+ * @param <T> the kind of crew member
+ */
+final class TypeRatingIndex<T extends Crew> {
+
+	private static final BitSet NONE = new BitSet();
+
+	private final List<T> members = new ArrayList<>();
+	private final Map<T, Integer> positions = new IdentityHashMap<>();
+	private final List<BitSet> byType = new ArrayList<>();//indexed by type id
+	private final List<BitSet> byHomeBase = new ArrayList<>();//indexed by airport id
+
+	/**
+	 * Adds crew members to the index
+	 * @param crew the crew members to add
+	 */
+	void addAll(List<? extends T> crew) {
+		for(T member : crew) {
+			add(member);
+		}
+	}
+
+	/**
+	 * Adds a crew member to the index
+	 * @param member the crew member
+	 */
+	void add(T member) {
+		int position = members.size();
+		members.add(member);
+		positions.put(member, position);
+
+		for(String typeCode : member.getTypeRatings()) {
+			int typeId = SymbolTable.TYPES.id(typeCode);
+			if(typeId >= 0) {
+				SymbolTable.getOrCreate(byType, typeId, BitSet::new).set(position);
+			}
+		}
+		int homeBase = SymbolTable.AIRPORTS.id(member.getHomeBase());
+		if(homeBase >= 0) {
+			SymbolTable.getOrCreate(byHomeBase, homeBase, BitSet::new).set(position);
+		}
+	}
+
+	/**
+	 * Returns the id a type code is encoded as
+	 * @param typeCode the type code
+	 * @return the id, or -1 if nobody in the index is rated for that type
+	 */
+	int typeId(String typeCode) {
+		int id = SymbolTable.TYPES.find(typeCode);
+		return SymbolTable.get(byType, id) == null ? -1 : id;
+	}
+
+	/**
+	 * Returns the bitmap of the positions of the crew rated for a type. Scheduling runs AND it with the crew they
+	 * can still use, rather than testing crew one at a time
+	 * @param typeId the encoded type, from typeId()
+	 * @return the bitmap, which must not be changed, or an empty one if nobody is rated for the type
+	 */
+	BitSet rated(int typeId) {
+		BitSet rated = SymbolTable.get(byType, typeId);
+		return rated == null ? NONE : rated;
+	}
+
+	/**
+	 * Returns the position a crew member was given when they were added
+	 * @param member the crew member
+	 * @return the position, or -1 if they aren't in the index
+	 */
+	int positionOf(T member) {
+		Integer position = positions.get(member);
+		return position == null ? -1 : position;
+	}
+
+	/**
+	 * Returns the crew member at a position
+	 * @param position the position, from positionOf() or a bitmap
+	 * @return the crew member
+	 */
+	T get(int position) {
+		return members.get(position);
+	}
+
+	/**
+	 * Returns how many crew members are in the index
+	 * @return the number of crew members, one more than the highest position
+	 */
+	int size() {
+		return members.size();
+	}
+
+	/**
+	 * Finds every crew member rated for a type
+	 * @param typeCode the type code
+	 * @return the crew rated for that type, in the order they were added
+	 */
+	List<T> withRating(String typeCode) {
+		int id = typeId(typeCode);
+		if(id < 0) {
+			return new ArrayList<>();
+		}
+		return select(byType.get(id), null);
+	}
+
+	/**
+	 * Finds every crew member based at an airport
+	 * @param homeBase the airport code
+	 * @return the crew based there, in the order they were added
+	 */
+	List<T> atHomeBase(String homeBase) {
+		BitSet base = SymbolTable.get(byHomeBase, SymbolTable.AIRPORTS.find(homeBase));
+		if(base == null) {
+			return new ArrayList<>();
+		}
+		return select(base, null);
+	}
+
+	/**
+	 * Finds every crew member rated for a type and based at an airport
+	 * @param typeCode the type code
+	 * @param homeBase the airport code
+	 * @return the crew rated for that type based there, in the order they were added
+	 */
+	List<T> withRatingAt(String typeCode, String homeBase) {
+		int id = typeId(typeCode);
+		BitSet base = SymbolTable.get(byHomeBase, SymbolTable.AIRPORTS.find(homeBase));
+		if(id < 0 || base == null) {
+			return new ArrayList<>();
+		}
+		return select(byType.get(id), base);
+	}
+
+	/**
+	 * Removes everybody from the index
+	 */
+	void clear() {
+		members.clear();
+		positions.clear();
+		byType.clear();
+		byHomeBase.clear();
+	}
+
+	//the crew whose bits are set in first, and also in second if there is one
+	private List<T> select(BitSet first, BitSet second) {
+		List<T> selected = new ArrayList<>();
+		for(int i = first.nextSetBit(0); i >= 0; i = first.nextSetBit(i + 1)) {
+			if(second == null || second.get(i)) {
+				selected.add(members.get(i));
+			}
+		}
+		return selected;
+	}
+}